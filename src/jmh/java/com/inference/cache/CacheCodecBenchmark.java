@@ -0,0 +1,94 @@
+package com.inference.cache;
+
+import com.inference.config.RedisConfig;
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON vs binary cache codec: encode and decode time per ImageEntity. Bytes per entry are printed at setup.
+ *
+ * Run with:
+ *   mvn -Pjmh -DskipTests verify -Djmh.include=CacheCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+    private static final int ENTRIES = 1_024;
+
+    @Param({"binary", "json"})
+    private String codecName;
+
+    private CacheCodec codec;
+    private ImageEntity[] images;
+    private byte[][] encoded;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        codec = "json".equals(codecName)
+                ? new JsonCacheCodec(new RedisConfig().objectMapper())
+                : new BinaryCacheCodec();
+        images = sampleImages();
+        encoded = new byte[ENTRIES][];
+
+        long totalBytes = 0;
+        for (int i = 0; i < ENTRIES; i++) {
+            encoded[i] = codec.encode(images[i]);
+            totalBytes += encoded[i].length;
+        }
+        System.out.printf("%n%s: %.1f bytes/entry%n", codec.getClass().getSimpleName(), (double) totalBytes / ENTRIES);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return codec.encode(images[nextIndex()]);
+    }
+
+    @Benchmark
+    public ImageEntity decode() {
+        return codec.decode(encoded[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        return next++ & (ENTRIES - 1);
+    }
+
+    static ImageEntity[] sampleImages() {
+        ImageEntity[] images = new ImageEntity[ENTRIES];
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < ENTRIES; i++) {
+            String s3Key = "images/" + UUID.randomUUID() + "-photo-" + i + ".jpg";
+            images[i] = ImageEntity.builder()
+                    .id((long) i + 1)
+                    .imageUrl("https://cdn.example.com/" + s3Key)
+                    .s3Key(s3Key)
+                    .status(ImageStatus.COMPLETED)
+                    .classificationResult("golden_retriever")
+                    .confidenceScore(0.5 + (i % 50) / 100.0)
+                    .processingTimeMs(120L + i % 40)
+                    .createdAt(now.minusSeconds(30))
+                    .updatedAt(now)
+                    .build();
+        }
+        return images;
+    }
+}
@@ -0,0 +1,76 @@
+package com.inference.messaging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message parsing on the results listener: binary and legacy colon-separated results, plus the
+ * request encoding the outbox relay publishes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageMessageCodecBenchmark {
+
+    private ClassificationResult result;
+    private byte[] binaryResult;
+    private byte[] legacyResult;
+    private byte[] binaryError;
+
+    @Setup
+    public void setUp() {
+        result = ClassificationResult.builder()
+                .imageId(1234567890L)
+                .label("golden_retriever")
+                .confidence(0.9731)
+                .processingTimeMs(87)
+                .topLabels(new String[]{"golden_retriever", "labrador_retriever", "kuvasz"})
+                .topScores(new float[]{0.9731f, 0.0211f, 0.0032f})
+                .build();
+        binaryResult = ImageMessageCodec.encodeResult(result);
+        legacyResult = "1234567890:golden_retriever:0.9731".getBytes(StandardCharsets.UTF_8);
+        binaryError = ImageMessageCodec.encodeError(ProcessingError.builder()
+                .imageId(1234567890L)
+                .errorCode(504)
+                .message("inference timed out")
+                .build());
+    }
+
+    @Benchmark
+    public ClassificationResult decodeBinaryResult() {
+        return ImageMessageCodec.decodeResult(binaryResult);
+    }
+
+    @Benchmark
+    public ClassificationResult decodeLegacyResult() {
+        return ImageMessageCodec.decodeResult(legacyResult);
+    }
+
+    @Benchmark
+    public ProcessingError decodeBinaryError() {
+        return ImageMessageCodec.decodeError(binaryError);
+    }
+
+    @Benchmark
+    public byte[] encodeResult() {
+        return ImageMessageCodec.encodeResult(result);
+    }
+
+    @Benchmark
+    public byte[] encodeProcessingRequest() {
+        return ImageMessageCodec.encodeProcessingRequest(1234567890L, "images/3f2b8c1e-photo.jpg", 0);
+    }
+}
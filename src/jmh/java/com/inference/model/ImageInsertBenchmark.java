@@ -0,0 +1,198 @@
+package com.inference.model;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.containers.PostgreSQLContainer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput (rows/s) into Postgres: IDENTITY ids vs the pooled sequence ImageEntity now uses, each with
+ * and without reWriteBatchedInserts. bulkInsert is one transaction per bulk-upload chunk; singleInsert is
+ * concurrent single uploads, one row per transaction. Needs Docker for the Postgres container, or
+ * jmh.postgres.url pointing at a scratch database (credentials in the URL); its images and images_identity
+ * tables are dropped and recreated for every trial.
+ *
+ *   mvn -Pjmh -DskipTests verify -Djmh.include=ImageInsertBenchmark
+ *   mvn -Pjmh -DskipTests verify -Djmh.include=ImageInsertBenchmark -Djmh.postgres.url=jdbc:postgresql://localhost:5432/jmh?user=postgres
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ImageInsertBenchmark {
+
+    // inference.api.bulk-upload.batch-size
+    private static final int BULK_SIZE = 100;
+
+    @Param({"identity", "sequence"})
+    private String ids;
+
+    @Param({"false", "true"})
+    private boolean reWriteBatchedInserts;
+
+    private PostgreSQLContainer<?> postgres;
+    private HikariDataSource dataSource;
+    private SessionFactory sessionFactory;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String externalUrl = System.getProperty("jmh.postgres.url", "");
+
+        dataSource = new HikariDataSource();
+        if (externalUrl.isEmpty()) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+            dataSource.setJdbcUrl(postgres.getJdbcUrl());
+            dataSource.setUsername(postgres.getUsername());
+            dataSource.setPassword(postgres.getPassword());
+        } else {
+            dataSource.setJdbcUrl(externalUrl);
+        }
+        dataSource.setMaximumPoolSize(10);
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", reWriteBatchedInserts);
+
+        // Both entities name their indexes alike, so a shared database must lose the other trial's table first
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS images, images_identity CASCADE");
+        }
+
+        // Same Hibernate settings as application.yml
+        Configuration configuration = new Configuration()
+                .addAnnotatedClass("sequence".equals(ids) ? ImageEntity.class : IdentityImageEntity.class);
+        configuration.getProperties().put(AvailableSettings.DATASOURCE, dataSource);
+        configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "create");
+        configuration.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+        configuration.setProperty(AvailableSettings.ORDER_INSERTS, "true");
+        configuration.setProperty(AvailableSettings.ORDER_UPDATES, "true");
+        sessionFactory = configuration.buildSessionFactory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        sessionFactory.close();
+        dataSource.close();
+        if (postgres != null) {
+            postgres.stop();
+        }
+    }
+
+    // Keeps table and index size comparable from one iteration to the next
+    @TearDown(Level.Iteration)
+    public void truncate() {
+        sessionFactory.inTransaction(session -> session
+                .createNativeMutationQuery("TRUNCATE TABLE " + ("sequence".equals(ids) ? "images" : "images_identity"))
+                .executeUpdate());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BULK_SIZE)
+    public void bulkInsert() {
+        sessionFactory.inTransaction(session -> {
+            for (int i = 0; i < BULK_SIZE; i++) {
+                session.persist(newImage());
+            }
+        });
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void singleInsert() {
+        sessionFactory.inTransaction(session -> session.persist(newImage()));
+    }
+
+    private Object newImage() {
+        String s3Key = "images/" + UUID.randomUUID() + "-photo.jpg";
+        if ("sequence".equals(ids)) {
+            return ImageEntity.builder()
+                    .imageUrl("https://cdn.example.com/" + s3Key)
+                    .s3Key(s3Key)
+                    .contentHash(UUID.randomUUID().toString())
+                    .status(ImageStatus.PENDING)
+                    .build();
+        }
+
+        IdentityImageEntity image = new IdentityImageEntity();
+        image.imageUrl = "https://cdn.example.com/" + s3Key;
+        image.s3Key = s3Key;
+        image.contentHash = UUID.randomUUID().toString();
+        image.status = ImageStatus.PENDING;
+        image.createdAt = LocalDateTime.now();
+        image.updatedAt = image.createdAt;
+        return image;
+    }
+
+    // The columns an upload writes, with the IDENTITY id ImageEntity had before pooled sequences. Constraints and
+    // indexes match ImageEntity's, so the two sides maintain the same btrees and differ only in how ids are assigned.
+    @Entity
+    @Table(name = "images_identity", indexes = {
+            @Index(name = "idx_s3_key", columnList = "s3_key"),
+            @Index(name = "idx_status_created_id", columnList = "status, created_at, id"),
+            @Index(name = "idx_created_id", columnList = "created_at, id"),
+            @Index(name = "idx_status_updated_at", columnList = "status, updated_at"),
+            @Index(name = "idx_content_hash", columnList = "content_hash")
+    })
+    public static class IdentityImageEntity {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+
+        @Column(nullable = false, length = 500)
+        String imageUrl;
+
+        @Column(name = "s3_key", nullable = false, length = 500)
+        String s3Key;
+
+        @Column(name = "content_hash", length = 64)
+        String contentHash;
+
+        @Column(nullable = false)
+        @Enumerated(EnumType.STRING)
+        ImageStatus status;
+
+        @Column(name = "created_at", nullable = false)
+        LocalDateTime createdAt;
+
+        @Column(name = "updated_at", nullable = false)
+        LocalDateTime updatedAt;
+
+        @Column(name = "attempts", nullable = false)
+        int attempts;
+
+        @Column(name = "version", nullable = false)
+        long version;
+    }
+}
@@ -0,0 +1,128 @@
+package com.inference.service;
+
+import com.inference.cache.BinaryCacheCodec;
+import com.inference.config.ReplicaRoutingDataSource;
+import com.inference.controller.ImageResponse;
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read path of ImageService over in-memory Redis and repository stand-ins: single and batch lookups with
+ * the near cache on or off, the repository path for images still in flight, response mapping and key generation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageServiceBenchmark {
+
+    private static final int IMAGES = 4_096;
+    private static final int BATCH_SIZE = 50;
+
+    // off: expire L1 entries at once, so every lookup goes to the Redis stand-in and decodes
+    @Param({"on", "off"})
+    private String nearCache;
+
+    private ImageService imageService;
+    private List<Long> batch;
+    private ImageEntity completed;
+    private long next;
+
+    @Setup
+    public void setUp() {
+        MetricsService metricsService = new MetricsService(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+
+        CacheService cacheService = new CacheService(InMemoryStandIns.redis(), new BinaryCacheCodec(),
+                new RedisMessageListenerContainer(), metricsService);
+        ReflectionTestUtils.setField(cacheService, "nearCacheMaxEntries", 10_000L);
+        ReflectionTestUtils.setField(cacheService, "nearCacheTtl", "on".equals(nearCache) ? Duration.ofMinutes(5) : Duration.ZERO);
+        ReflectionTestUtils.setField(cacheService, "negativeTtl", Duration.ofSeconds(30));
+        cacheService.initNearCache();
+
+        // Even ids are COMPLETED and cached, odd ids are PENDING and only in the repository
+        Map<Long, ImageEntity> rows = new ConcurrentHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (long id = 1; id <= IMAGES; id++) {
+            String s3Key = ImageService.generateS3Key("photo-" + id + ".jpg");
+            ImageEntity image = ImageEntity.builder()
+                    .id(id)
+                    .imageUrl("https://cdn.example.com/" + s3Key)
+                    .s3Key(s3Key)
+                    .status(id % 2 == 0 ? ImageStatus.COMPLETED : ImageStatus.PENDING)
+                    .classificationResult(id % 2 == 0 ? "golden_retriever" : null)
+                    .confidenceScore(id % 2 == 0 ? 0.93 : null)
+                    .createdAt(now.minusSeconds(30))
+                    .updatedAt(now)
+                    .build();
+            rows.put(id, image);
+            if (image.getStatus().isTerminal()) {
+                cacheService.cacheResult(id, image);
+            }
+        }
+
+        // No replicas: every read is a primary read, as without read/write routing
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(null, List.of(), Duration.ofSeconds(5), metricsService);
+        imageService = new ImageService(InMemoryStandIns.imageRepository(rows), null, null, null,
+                cacheService, null, metricsService, null, null, routing, null);
+
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (long id = 2; batch.size() < BATCH_SIZE; id += 2) {
+            batch.add(id);
+        }
+        completed = rows.get(2L);
+    }
+
+    @Benchmark
+    public ImageEntity getCompletedImage() {
+        return imageService.getImageWithCache(nextId() * 2);
+    }
+
+    @Benchmark
+    public ImageEntity getPendingImage() {
+        return imageService.getImageWithCache(nextId() * 2 - 1);
+    }
+
+    @Benchmark
+    public void getImageBatch(Blackhole blackhole) {
+        imageService.getImagesWithCache(batch, (id, image) -> blackhole.consume(image));
+    }
+
+    @Benchmark
+    public ImageResponse toResponse() {
+        return ImageResponse.from(completed);
+    }
+
+    @Benchmark
+    public String generateS3Key() {
+        return ImageService.generateS3Key("IMG_20240101_120000.jpg");
+    }
+
+    private long nextId() {
+        return (next++ % (IMAGES / 2)) + 1;
+    }
+}
@@ -0,0 +1,75 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import com.inference.repository.ImageRepository;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Map-backed stand-ins for Redis and Postgres, so benchmarks measure our code rather than the network.
+// Only the calls the benchmarked paths make are implemented; anything else fails loudly.
+final class InMemoryStandIns {
+
+    private InMemoryStandIns() {
+    }
+
+    static RedisTemplate<String, byte[]> redis() {
+        Map<String, byte[]> store = new ConcurrentHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        ValueOperations<String, byte[]> values = (ValueOperations<String, byte[]>) Proxy.newProxyInstance(
+                ValueOperations.class.getClassLoader(), new Class<?>[]{ValueOperations.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "get" -> store.get((String) args[0]);
+                    case "multiGet" -> {
+                        List<byte[]> found = new ArrayList<>();
+                        for (Object key : (Collection<?>) args[0]) {
+                            found.add(store.get((String) key));
+                        }
+                        yield found;
+                    }
+                    case "set" -> {
+                        store.put((String) args[0], (byte[]) args[1]);
+                        yield null;
+                    }
+                    default -> throw new UnsupportedOperationException("ValueOperations." + method.getName());
+                });
+
+        return new RedisTemplate<>() {
+            @Override
+            public ValueOperations<String, byte[]> opsForValue() {
+                return values;
+            }
+
+            @Override
+            public Long convertAndSend(String channel, Object message) {
+                return 0L;
+            }
+        };
+    }
+
+    static ImageRepository imageRepository(Map<Long, ImageEntity> rows) {
+        return (ImageRepository) Proxy.newProxyInstance(
+                ImageRepository.class.getClassLoader(), new Class<?>[]{ImageRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.ofNullable(rows.get((Long) args[0]));
+                    case "findAllById" -> {
+                        List<ImageEntity> found = new ArrayList<>();
+                        for (Object id : (Iterable<?>) args[0]) {
+                            ImageEntity image = rows.get((Long) id);
+                            if (image != null) {
+                                found.add(image);
+                            }
+                        }
+                        yield found;
+                    }
+                    default -> throw new UnsupportedOperationException("ImageRepository." + method.getName());
+                });
+    }
+}
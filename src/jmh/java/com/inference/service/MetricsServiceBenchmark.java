@@ -0,0 +1,68 @@
+package com.inference.service;
+
+import com.inference.model.ImageStatus;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the record calls on the request and listener paths, against the Prometheus registry used in
+ * production. Runs on 4 threads since the meters are shared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class MetricsServiceBenchmark {
+
+    private MetricsService metricsService;
+
+    @Setup
+    public void setUp() {
+        metricsService = new MetricsService(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+    }
+
+    @Benchmark
+    public void recordCacheHit() {
+        metricsService.recordCacheHit();
+    }
+
+    @Benchmark
+    public void recordContentDedup() {
+        metricsService.recordContentDedup("miss");
+    }
+
+    @Benchmark
+    public void recordListenerLatency() {
+        metricsService.recordListenerLatency("classification-results", 1_250_000);
+    }
+
+    @Benchmark
+    public void recordPublishLatency() {
+        metricsService.recordPublishLatency(3_400_000);
+    }
+
+    @Benchmark
+    public void recordProcessingTime() {
+        metricsService.recordProcessingTime(ImageStatus.COMPLETED, 840);
+    }
+
+    @Benchmark
+    public void recordPartitionLag() {
+        metricsService.recordPartitionLag("image-classification-results", 7, 120);
+    }
+}
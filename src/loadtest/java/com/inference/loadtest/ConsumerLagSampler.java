@@ -0,0 +1,87 @@
+package com.inference.loadtest;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Samples, at a fixed interval, how many records each consumer group is behind on its topics (log end offset
+ * minus committed offset, summed over partitions), plus any extra gauges such as the outbox lag.
+ */
+final class ConsumerLagSampler implements AutoCloseable {
+
+    private final AdminClient admin;
+    private final Map<String, List<String>> topicsByGroup;
+    private final Map<String, LongSupplier> gauges;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, LoadTestReport.Series> series = new LinkedHashMap<>();
+
+    ConsumerLagSampler(String bootstrapServers, Map<String, List<String>> topicsByGroup, Map<String, LongSupplier> gauges) {
+        this.admin = AdminClient.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+        this.topicsByGroup = topicsByGroup;
+        this.gauges = gauges;
+        topicsByGroup.keySet().forEach(group -> series.put(group, new LoadTestReport.Series()));
+        gauges.keySet().forEach(gauge -> series.put(gauge, new LoadTestReport.Series()));
+    }
+
+    void start(Duration interval) {
+        scheduler.scheduleWithFixedDelay(this::sample, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        try {
+            for (Map.Entry<String, List<String>> group : topicsByGroup.entrySet()) {
+                series.get(group.getKey()).add(lag(group.getKey(), group.getValue()));
+            }
+            gauges.forEach((name, gauge) -> series.get(name).add(gauge.getAsLong()));
+
+        } catch (Exception e) {
+            // Topics appear once the application has started; a missed sample is not worth failing the run
+        }
+    }
+
+    private long lag(String group, List<String> topics) throws Exception {
+        Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+        for (TopicDescription topic : admin.describeTopics(topics).allTopicNames().get().values()) {
+            topic.partitions().forEach(partition ->
+                    latest.put(new TopicPartition(topic.name(), partition.partition()), OffsetSpec.latest()));
+        }
+
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(latest).all().get();
+        Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(group)
+                .partitionsToOffsetAndMetadata().get();
+
+        long lag = 0;
+        for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end : ends.entrySet()) {
+            // Nothing committed yet means the group starts from the beginning (auto-offset-reset: earliest)
+            OffsetAndMetadata offset = committed.get(end.getKey());
+            lag += Math.max(0, end.getValue().offset() - (offset != null ? offset.offset() : 0));
+        }
+        return lag;
+    }
+
+    Map<String, LoadTestReport.Series> series() {
+        return series;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        sample();
+        admin.close();
+    }
+}
@@ -0,0 +1,148 @@
+package com.inference.loadtest;
+
+import com.inference.messaging.ClassificationResult;
+import com.inference.messaging.ImageMessageCodec;
+import com.inference.messaging.ProcessingError;
+import com.inference.messaging.ProcessingRequest;
+import com.inference.service.ImageProcessingConsumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stands in for the inference workers: reads image-processing-topic and answers each request on the results
+ * topic, or the errors topic for a share of them, after a synthetic inference time. At most {@code slots}
+ * requests are in inference at once; the consumer stops polling while every slot is busy, so a worker that
+ * cannot keep up shows as consumer lag on image-processing-topic, as a real GPU pool would.
+ */
+final class FakeInferenceWorker implements AutoCloseable {
+
+    static final String GROUP_ID = "loadtest-inference-worker";
+    static final String REQUESTS_TOPIC = "image-processing-topic";
+    static final String ERRORS_TOPIC = "image-processing-errors";
+
+    private static final String[] LABELS = {"golden_retriever", "tabby_cat", "sports_car", "espresso", "mountain_bike"};
+
+    private final KafkaConsumer<String, byte[]> consumer;
+    private final KafkaProducer<String, byte[]> producer;
+    private final ExecutorService inference;
+    private final Semaphore slots;
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double failureRate;
+    private final Thread pollThread;
+
+    private volatile boolean running = true;
+
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong results = new AtomicLong();
+    final AtomicLong failures = new AtomicLong();
+
+    FakeInferenceWorker(String bootstrapServers, int slots, Duration latency, Duration jitter, double failureRate) {
+        this.consumer = new KafkaConsumer<>(Map.of(
+                ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ConsumerConfig.GROUP_ID_CONFIG, GROUP_ID,
+                ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest",
+                // Offsets only move as slots free up, and are committed often enough for the lag sampler to see it
+                ConsumerConfig.MAX_POLL_RECORDS_CONFIG, slots,
+                ConsumerConfig.AUTO_COMMIT_INTERVAL_MS_CONFIG, 100,
+                ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class,
+                ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class));
+        this.producer = new KafkaProducer<>(Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers,
+                ProducerConfig.LINGER_MS_CONFIG, 5,
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class));
+        this.inference = Executors.newFixedThreadPool(slots);
+        this.slots = new Semaphore(slots);
+        this.latencyMillis = latency.toMillis();
+        this.jitterMillis = jitter.toMillis();
+        this.failureRate = failureRate;
+        this.pollThread = new Thread(this::pollLoop, "fake-inference-worker");
+    }
+
+    void start() {
+        consumer.subscribe(List.of(REQUESTS_TOPIC));
+        pollThread.start();
+    }
+
+    private void pollLoop() {
+        try {
+            while (running) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofMillis(100))) {
+                    ProcessingRequest request = ImageMessageCodec.decodeProcessingRequest(record.value());
+                    requests.incrementAndGet();
+                    slots.acquire();
+                    inference.execute(() -> {
+                        try {
+                            infer(request);
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                }
+            }
+        } catch (WakeupException | InterruptedException e) {
+            // Closing
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void infer(ProcessingRequest request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long inferenceMillis = Math.max(0, latencyMillis + (jitterMillis > 0 ? random.nextLong(-jitterMillis, jitterMillis + 1) : 0));
+        try {
+            Thread.sleep(inferenceMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        String key = String.valueOf(request.getImageId());
+        if (random.nextDouble() < failureRate) {
+            producer.send(new ProducerRecord<>(ERRORS_TOPIC, key, ImageMessageCodec.encodeError(ProcessingError.builder()
+                    .imageId(request.getImageId())
+                    .message("Synthetic inference failure")
+                    .build())));
+            failures.incrementAndGet();
+            return;
+        }
+
+        producer.send(new ProducerRecord<>(ImageProcessingConsumer.RESULTS_TOPIC, key, ImageMessageCodec.encodeResult(
+                ClassificationResult.builder()
+                        .imageId(request.getImageId())
+                        .label(LABELS[random.nextInt(LABELS.length)])
+                        .confidence(0.5 + random.nextDouble() * 0.5)
+                        .processingTimeMs((int) inferenceMillis)
+                        .build())));
+        results.incrementAndGet();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        consumer.wakeup();
+        pollThread.join();
+        inference.shutdown();
+        inference.awaitTermination(30, TimeUnit.SECONDS);
+        producer.close();
+    }
+}
@@ -0,0 +1,81 @@
+package com.inference.loadtest;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Machine-readable outcome of one PipelineLoadTest run, written as JSON to {@code loadtest.report}.
+ * Latencies are in milliseconds; lag series are records behind for consumer groups and milliseconds for outbox-lag.
+ */
+record LoadTestReport(Settings settings,
+                      Uploads uploads,
+                      Throughput throughput,
+                      // Upload sent to the first poll that saw a terminal status; includes up to one poll interval
+                      Latency endToEndMs,
+                      // createdAt to updatedAt as stored on the image, free of polling granularity
+                      Latency processingMs,
+                      Map<String, Long> outcomes,
+                      Polling polling,
+                      Map<String, LagSummary> lag,
+                      Worker worker) {
+
+    record Settings(double uploadsPerSecond, long durationSeconds, int uploadConcurrency, long pollIntervalMs,
+                    int imageBytes, int workerSlots, long workerLatencyMs, long workerJitterMs,
+                    double workerFailureRate, boolean rateLimit) {
+    }
+
+    // Latency runs from the scheduled send time, so a saturated client pool shows up instead of hiding it
+    record Uploads(long attempted, long accepted, Map<Integer, Long> rejected, long errors, Latency latencyMs) {
+    }
+
+    record Throughput(double acceptedPerSecond, double terminalPerSecond, double elapsedSeconds) {
+    }
+
+    record Polling(long polls, double pollsPerSecond) {
+    }
+
+    record Worker(long requests, long results, long failures) {
+    }
+
+    record Latency(long count, double mean, long p50, long p90, long p99, long max) {
+
+        static Latency of(Collection<Long> samples) {
+            long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+            if (sorted.length == 0) {
+                return new Latency(0, 0, 0, 0, 0, 0);
+            }
+            return new Latency(sorted.length, Arrays.stream(sorted).average().orElse(0),
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), sorted[sorted.length - 1]);
+        }
+
+        // Nearest rank
+        private static long percentile(long[] sorted, double quantile) {
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+    }
+
+    record LagSummary(long samples, long max, double mean, long last) {
+    }
+
+    // Values of one sampled gauge over the run
+    static final class Series {
+
+        private long samples;
+        private long max;
+        private long sum;
+        private long last;
+
+        synchronized void add(long value) {
+            samples++;
+            max = Math.max(max, value);
+            sum += value;
+            last = value;
+        }
+
+        synchronized LagSummary summary() {
+            return new LagSummary(samples, max, samples > 0 ? (double) sum / samples : 0, last);
+        }
+    }
+}
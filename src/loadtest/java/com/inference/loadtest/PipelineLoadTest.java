@@ -0,0 +1,370 @@
+package com.inference.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inference.controller.ImageResponse;
+import com.inference.model.ImageStatus;
+import com.inference.service.ImageProcessingConsumer;
+import com.inference.service.OutboxRelay;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Drives the whole pipeline at a fixed upload rate: upload, outbox relay to image-processing-topic,
+ * {@link FakeInferenceWorker}, results back through ImageProcessingConsumer into Postgres and Redis, and
+ * clients polling GET /images/{id} until each image is terminal. Kafka is embedded; Postgres and Redis run
+ * in Testcontainers, so the test is skipped without Docker unless it is pointed at running instances with
+ * loadtest.postgres.url (plus .username, .password) and loadtest.redis.host (plus .port). The database
+ * should be a scratch one. Every knob is a loadtest.* system property:
+ *
+ *   mvn -Ploadtest test -Dloadtest.uploads-per-second=200 -Dloadtest.duration=60s -Dloadtest.worker.slots=16
+ *   mvn -Ploadtest test -Dloadtest.postgres.url=jdbc:postgresql://localhost:5432/loadtest -Dloadtest.redis.host=localhost
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.consumer.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "inference.rate-limit.enabled=${loadtest.rate-limit:false}",
+        // The test client stands in for a trusted proxy, so X-Client-Id spreads uploads over loadtest.clients buckets
+        "inference.rate-limit.trusted-proxies=127.0.0.1,0:0:0:0:0:0:0:1",
+        "logging.level.root=WARN",
+        "logging.level.com.inference=WARN",
+        "logging.level.com.inference.loadtest=INFO"
+})
+@EmbeddedKafka(kraft = true)
+@Slf4j
+class PipelineLoadTest {
+
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+    private static final GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+
+    // Running services used instead of the containers when set
+    private static final String externalPostgresUrl = System.getProperty("loadtest.postgres.url");
+    private static final String externalRedisHost = System.getProperty("loadtest.redis.host");
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker kafka;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${loadtest.uploads-per-second:50}")
+    private double uploadsPerSecond;
+
+    @Value("${loadtest.duration:30s}")
+    private Duration duration;
+
+    // Client threads sending uploads; uploads due while all are busy queue up and count as latency
+    @Value("${loadtest.upload-concurrency:16}")
+    private int uploadConcurrency;
+
+    // X-Client-Id values uploads are spread over, for runs with loadtest.rate-limit=true
+    @Value("${loadtest.clients:10}")
+    private int clients;
+
+    @Value("${loadtest.image-bytes:16384}")
+    private int imageBytes;
+
+    // Each accepted image is polled this often until it is terminal
+    @Value("${loadtest.poll-interval:100ms}")
+    private Duration pollInterval;
+
+    @Value("${loadtest.poll-concurrency:8}")
+    private int pollConcurrency;
+
+    // How long after the last upload images may take to become terminal before they count as timed out
+    @Value("${loadtest.drain-timeout:60s}")
+    private Duration drainTimeout;
+
+    @Value("${loadtest.worker.slots:8}")
+    private int workerSlots;
+
+    @Value("${loadtest.worker.latency:50ms}")
+    private Duration workerLatency;
+
+    @Value("${loadtest.worker.jitter:20ms}")
+    private Duration workerJitter;
+
+    @Value("${loadtest.worker.failure-rate:0.01}")
+    private double workerFailureRate;
+
+    @Value("${loadtest.rate-limit:false}")
+    private boolean rateLimit;
+
+    @Value("${loadtest.lag-sample-interval:500ms}")
+    private Duration lagSampleInterval;
+
+    @Value("${loadtest.report:target/loadtest-report.json}")
+    private Path reportPath;
+
+    private final AtomicLong attempted = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lastUploadNanos = new AtomicLong();
+    private final AtomicLong lastTerminalNanos = new AtomicLong();
+    private final Map<Integer, LongAdder> rejected = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> uploadLatencies = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> endToEndLatencies = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> processingTimes = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService pollers;
+    private volatile boolean polling = true;
+
+    @BeforeAll
+    static void startContainers() {
+        if (externalPostgresUrl == null || externalRedisHost == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(),
+                    "Postgres and Redis need Docker, or loadtest.postgres.url and loadtest.redis.host");
+        }
+        if (externalPostgresUrl == null) {
+            postgres.start();
+        }
+        if (externalRedisHost == null) {
+            redis.start();
+        }
+    }
+
+    @AfterAll
+    static void stopContainers() {
+        redis.stop();
+        postgres.stop();
+    }
+
+    @DynamicPropertySource
+    static void containerProperties(DynamicPropertyRegistry registry) {
+        if (externalPostgresUrl != null) {
+            registry.add("spring.datasource.url", () -> externalPostgresUrl);
+            registry.add("spring.datasource.username", () -> System.getProperty("loadtest.postgres.username", "postgres"));
+            registry.add("spring.datasource.password", () -> System.getProperty("loadtest.postgres.password", ""));
+        } else {
+            registry.add("spring.datasource.url", postgres::getJdbcUrl);
+            registry.add("spring.datasource.username", postgres::getUsername);
+            registry.add("spring.datasource.password", postgres::getPassword);
+        }
+
+        if (externalRedisHost != null) {
+            registry.add("spring.data.redis.host", () -> externalRedisHost);
+            registry.add("spring.data.redis.port", () -> System.getProperty("loadtest.redis.port", "6379"));
+        } else {
+            registry.add("spring.data.redis.host", redis::getHost);
+            registry.add("spring.data.redis.port", () -> redis.getMappedPort(6379));
+        }
+    }
+
+    @Test
+    void uploadToResult() throws Exception {
+        FakeInferenceWorker worker = new FakeInferenceWorker(kafka.getBrokersAsString(), workerSlots,
+                workerLatency, workerJitter, workerFailureRate);
+        ConsumerLagSampler lag = new ConsumerLagSampler(kafka.getBrokersAsString(),
+                Map.of("image-service-group", List.of(ImageProcessingConsumer.RESULTS_TOPIC, FakeInferenceWorker.ERRORS_TOPIC),
+                        FakeInferenceWorker.GROUP_ID, List.of(FakeInferenceWorker.REQUESTS_TOPIC)),
+                Map.of("outbox-lag", outboxRelay::getLagMillis));
+
+        long start;
+        long timedOut;
+        try (worker; lag) {
+            worker.start();
+            lag.start(lagSampleInterval);
+
+            start = System.nanoTime();
+            pollers = Executors.newScheduledThreadPool(pollConcurrency);
+            drive(start);
+            timedOut = drain();
+            polling = false;
+            pollers.shutdownNow();
+        }
+
+        // After close, so the lag series ends with a sample taken once the run is over
+        LoadTestReport report = report(start, timedOut, worker, lag);
+        Files.createDirectories(reportPath.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(reportPath.toFile(), report);
+        log.info("Load test: {} uploads accepted at {}/s, end to end p50 {}ms p99 {}ms, report in {}",
+                report.uploads().accepted(), String.format("%.1f", report.throughput().acceptedPerSecond()),
+                report.endToEndMs().p50(), report.endToEndMs().p99(), reportPath.toAbsolutePath());
+
+        assertThat(report.uploads().errors()).as("uploads failing with something other than 429/503").isZero();
+        assertThat(report.outcomes()).as("images never reaching a terminal status").doesNotContainKey("TIMED_OUT");
+    }
+
+    // Sends uploads on a fixed schedule for the configured duration, whether or not earlier ones have returned
+    private void drive(long start) throws InterruptedException {
+        long total = (long) (uploadsPerSecond * duration.toMillis() / 1000);
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / uploadsPerSecond);
+        AtomicLong next = new AtomicLong();
+
+        ExecutorService uploaders = Executors.newFixedThreadPool(uploadConcurrency);
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        ticker.scheduleAtFixedRate(() -> {
+            long n = next.getAndIncrement();
+            if (n < total) {
+                long due = start + n * periodNanos;
+                uploaders.execute(() -> upload(n, due));
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        while (next.get() < total) {
+            Thread.sleep(50);
+        }
+        ticker.shutdown();
+        uploaders.shutdown();
+        uploaders.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void upload(long n, long dueNanos) {
+        attempted.incrementAndGet();
+
+        // Distinct bytes per upload, otherwise content dedup answers without going through the worker
+        byte[] content = new byte[imageBytes];
+        ThreadLocalRandom.current().nextBytes(content);
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new ByteArrayResource(content) {
+            @Override
+            public String getFilename() {
+                return "loadtest-" + n + ".jpg";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+        headers.set("X-Client-Id", "loadtest-" + (n % clients));
+
+        try {
+            // Relative to the /api context path; the controller mapping adds its own /api prefix
+            ResponseEntity<ImageResponse> response = restTemplate.postForEntity("/api/v1/images/upload",
+                    new HttpEntity<>(body, headers), ImageResponse.class);
+            long now = System.nanoTime();
+            lastUploadNanos.accumulateAndGet(now, Math::max);
+
+            int status = response.getStatusCode().value();
+            if (status == 201 && response.getBody() != null) {
+                accepted.incrementAndGet();
+                uploadLatencies.add(TimeUnit.NANOSECONDS.toMillis(now - dueNanos));
+                pending.incrementAndGet();
+                schedulePoll(response.getBody().getId(), dueNanos);
+            } else if (status == 429 || status == 503) {
+                rejected.computeIfAbsent(status, key -> new LongAdder()).increment();
+            } else {
+                errors.incrementAndGet();
+            }
+
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private void schedulePoll(long id, long sentNanos) {
+        if (polling) {
+            pollers.schedule(() -> poll(id, sentNanos), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void poll(long id, long sentNanos) {
+        polls.incrementAndGet();
+        try {
+            ResponseEntity<ImageResponse> response = restTemplate.getForEntity("/api/v1/images/{id}", ImageResponse.class, id);
+            ImageResponse image = response.getBody();
+            if (response.getStatusCode().is2xxSuccessful() && image != null
+                    && ImageStatus.valueOf(image.getStatus()).isTerminal()) {
+                long now = System.nanoTime();
+                endToEndLatencies.add(TimeUnit.NANOSECONDS.toMillis(now - sentNanos));
+                processingTimes.add(Duration.between(image.getCreatedAt(), image.getUpdatedAt()).toMillis());
+                outcomes.computeIfAbsent(image.getStatus(), key -> new LongAdder()).increment();
+                lastTerminalNanos.accumulateAndGet(now, Math::max);
+                pending.decrementAndGet();
+                return;
+            }
+
+        } catch (Exception e) {
+            // Counted as another poll; the image stays pending until it is seen terminal or the run ends
+        }
+        schedulePoll(id, sentNanos);
+    }
+
+    // Waits for the images still in flight; returns how many did not make it within drain-timeout
+    private long drain() throws InterruptedException {
+        long deadline = System.nanoTime() + drainTimeout.toNanos();
+        while (pending.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        return pending.get();
+    }
+
+    private LoadTestReport report(long start, long timedOut, FakeInferenceWorker worker, ConsumerLagSampler lag) {
+        double uploadSeconds = seconds(Math.max(lastUploadNanos.get(), start) - start);
+        double elapsedSeconds = seconds(Math.max(lastTerminalNanos.get(), start) - start);
+        long terminal = outcomes.values().stream().mapToLong(LongAdder::sum).sum();
+
+        Map<String, Long> outcomeCounts = new TreeMap<>();
+        outcomes.forEach((status, count) -> outcomeCounts.put(status, count.sum()));
+        if (timedOut > 0) {
+            outcomeCounts.put("TIMED_OUT", timedOut);
+        }
+        Map<Integer, Long> rejectedCounts = new TreeMap<>();
+        rejected.forEach((status, count) -> rejectedCounts.put(status, count.sum()));
+        Map<String, LoadTestReport.LagSummary> lagSummaries = new TreeMap<>();
+        lag.series().forEach((name, series) -> lagSummaries.put(name, series.summary()));
+
+        return new LoadTestReport(
+                new LoadTestReport.Settings(uploadsPerSecond, duration.toSeconds(), uploadConcurrency,
+                        pollInterval.toMillis(), imageBytes, workerSlots, workerLatency.toMillis(),
+                        workerJitter.toMillis(), workerFailureRate, rateLimit),
+                new LoadTestReport.Uploads(attempted.get(), accepted.get(), rejectedCounts, errors.get(),
+                        LoadTestReport.Latency.of(uploadLatencies)),
+                new LoadTestReport.Throughput(uploadSeconds > 0 ? accepted.get() / uploadSeconds : 0,
+                        elapsedSeconds > 0 ? terminal / elapsedSeconds : 0, elapsedSeconds),
+                LoadTestReport.Latency.of(endToEndLatencies),
+                LoadTestReport.Latency.of(processingTimes),
+                outcomeCounts,
+                new LoadTestReport.Polling(polls.get(), elapsedSeconds > 0 ? polls.get() / elapsedSeconds : 0),
+                lagSummaries,
+                new LoadTestReport.Worker(worker.requests.get(), worker.results.get(), worker.failures.get()));
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
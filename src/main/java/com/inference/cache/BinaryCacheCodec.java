@@ -0,0 +1,185 @@
+package com.inference.cache;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact, versioned binary layout holding only the fields the read path returns:
+ *
+ * <pre>
+ * byte    format version (1)
+ * byte    status ordinal
+ * byte    presence flags (see FLAG_*)
+ * long    id
+ * varint  imageUrl length, UTF-8 bytes
+ * varint  classificationResult length, UTF-8 bytes
+ * double  confidenceScore
+ * long    createdAt, epoch micros (UTC)
+ * long    updatedAt, epoch micros (UTC)
+ * </pre>
+ *
+ * Absent fields are skipped entirely. s3Key, errorMessage and processingTimeMs are not cached.
+ */
+@Component
+@ConditionalOnProperty(name = "inference.cache.codec", havingValue = "binary", matchIfMissing = true)
+public class BinaryCacheCodec implements CacheCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final int FLAG_ID = 1;
+    private static final int FLAG_URL = 1 << 1;
+    private static final int FLAG_RESULT = 1 << 2;
+    private static final int FLAG_CONFIDENCE = 1 << 3;
+    private static final int FLAG_CREATED_AT = 1 << 4;
+    private static final int FLAG_UPDATED_AT = 1 << 5;
+
+    // Status is stored by ordinal, so ImageStatus constants must only ever be appended
+    private static final ImageStatus[] STATUSES = ImageStatus.values();
+
+    @Override
+    public String keyVersion() {
+        return "b" + FORMAT_VERSION;
+    }
+
+    @Override
+    public byte[] encode(ImageEntity image) {
+        byte[] url = utf8(image.getImageUrl());
+        byte[] result = utf8(image.getClassificationResult());
+
+        int flags = 0;
+        int size = 3;
+        if (image.getId() != null) {
+            flags |= FLAG_ID;
+            size += Long.BYTES;
+        }
+        if (url != null) {
+            flags |= FLAG_URL;
+            size += varIntSize(url.length) + url.length;
+        }
+        if (result != null) {
+            flags |= FLAG_RESULT;
+            size += varIntSize(result.length) + result.length;
+        }
+        if (image.getConfidenceScore() != null) {
+            flags |= FLAG_CONFIDENCE;
+            size += Double.BYTES;
+        }
+        if (image.getCreatedAt() != null) {
+            flags |= FLAG_CREATED_AT;
+            size += Long.BYTES;
+        }
+        if (image.getUpdatedAt() != null) {
+            flags |= FLAG_UPDATED_AT;
+            size += Long.BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(FORMAT_VERSION);
+        buffer.put((byte) image.getStatus().ordinal());
+        buffer.put((byte) flags);
+        if ((flags & FLAG_ID) != 0) {
+            buffer.putLong(image.getId());
+        }
+        if ((flags & FLAG_URL) != 0) {
+            putBytes(buffer, url);
+        }
+        if ((flags & FLAG_RESULT) != 0) {
+            putBytes(buffer, result);
+        }
+        if ((flags & FLAG_CONFIDENCE) != 0) {
+            buffer.putDouble(image.getConfidenceScore());
+        }
+        if ((flags & FLAG_CREATED_AT) != 0) {
+            buffer.putLong(toEpochMicros(image.getCreatedAt()));
+        }
+        if ((flags & FLAG_UPDATED_AT) != 0) {
+            buffer.putLong(toEpochMicros(image.getUpdatedAt()));
+        }
+        return buffer.array();
+    }
+
+    @Override
+    public ImageEntity decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported cache payload version: " + version);
+        }
+
+        ImageEntity image = new ImageEntity();
+        image.setStatus(STATUSES[buffer.get()]);
+        int flags = buffer.get();
+        if ((flags & FLAG_ID) != 0) {
+            image.setId(buffer.getLong());
+        }
+        if ((flags & FLAG_URL) != 0) {
+            image.setImageUrl(getString(buffer));
+        }
+        if ((flags & FLAG_RESULT) != 0) {
+            image.setClassificationResult(getString(buffer));
+        }
+        if ((flags & FLAG_CONFIDENCE) != 0) {
+            image.setConfidenceScore(buffer.getDouble());
+        }
+        if ((flags & FLAG_CREATED_AT) != 0) {
+            image.setCreatedAt(fromEpochMicros(buffer.getLong()));
+        }
+        if ((flags & FLAG_UPDATED_AT) != 0) {
+            image.setUpdatedAt(fromEpochMicros(buffer.getLong()));
+        }
+        return image;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        int length = bytes.length;
+        while ((length & ~0x7F) != 0) {
+            buffer.put((byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static long toEpochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,15 @@
+package com.inference.cache;
+
+import com.inference.model.ImageEntity;
+
+// Converts cached ImageEntity payloads to and from the bytes stored in Redis
+public interface CacheCodec {
+
+    // Embedded in cache keys so replicas running different codecs never read each other's entries
+    String keyVersion();
+
+    byte[] encode(ImageEntity image);
+
+    ImageEntity decode(byte[] payload);
+
+}
@@ -0,0 +1,41 @@
+package com.inference.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inference.model.ImageEntity;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// Original format: the full entity as Jackson JSON
+@Component
+@ConditionalOnProperty(name = "inference.cache.codec", havingValue = "json")
+@RequiredArgsConstructor
+public class JsonCacheCodec implements CacheCodec {
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String keyVersion() {
+        return "v1";
+    }
+
+    @Override
+    public byte[] encode(ImageEntity image) {
+        try {
+            return objectMapper.writeValueAsBytes(image);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ImageEntity decode(byte[] payload) {
+        try {
+            return objectMapper.readValue(payload, ImageEntity.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package com.inference.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 
 @Configuration
 public class KafkaConfig {
 
+    // Upper bound on useful listener concurrency across all replicas. Raising it on an existing topic
+    // adds partitions, which remaps image-id keys, so only do that with the topics drained.
+    @Value("${inference.kafka.partitions:12}")
+    private int partitions;
+
     @Bean
     public NewTopic imageProcessingTopic() {
         return TopicBuilder.name("image-processing-topic")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -19,7 +29,7 @@ public class KafkaConfig {
     @Bean
     public NewTopic classificationResultsTopic() {
         return TopicBuilder.name("image-classification-results")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
@@ -27,9 +37,22 @@ public class KafkaConfig {
     @Bean
     public NewTopic processingErrorsTopic() {
         return TopicBuilder.name("image-processing-errors")
-                .partitions(3)
+                .partitions(partitions)
                 .replicas(1)
                 .build();
     }
 
-}
\ No newline at end of file
+    // Hands listeners the whole poll (up to max-poll-records) instead of one record at a time
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchKafkaListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        factory.setBatchListener(true);
+        // Commit once per poll, after the listener (and its DB transaction) has returned
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        return factory;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.inference.config;
+
+import com.inference.service.MetricsService;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Read-only transactions go to a replica whose last measured lag is within tolerance, round robin;
+// everything else, and reads while no replica qualifies, go to the primary. Must sit behind a
+// LazyConnectionDataSourceProxy so the connection is picked after the transaction's read-only flag is set.
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    // Replay lag in ms; 0 when fully caught up, since pg_last_xact_replay_timestamp() only moves on new writes
+    private static final String LAG_QUERY = "SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    // Set while a caller needs to see its own writes, e.g. the re-read after a replica miss
+    private static final ThreadLocal<Boolean> FORCE_PRIMARY = new ThreadLocal<>();
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final MetricsService metricsService;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private record Replica(String name, HikariDataSource pool, AtomicLong lagMillis) {
+    }
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicaPools, Duration maxLag,
+                                    MetricsService metricsService) {
+        this.maxLag = maxLag;
+        this.metricsService = metricsService;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        replicas = new ArrayList<>(replicaPools.size());
+        for (HikariDataSource pool : replicaPools) {
+            // Unmeasured replicas stay out of rotation until the first lag check
+            Replica replica = new Replica(pool.getPoolName(), pool, new AtomicLong(Long.MAX_VALUE));
+            replicas.add(replica);
+            targets.put(replica.name(), pool);
+            metricsService.monitorReplicaLag(replica.name(), replica.lagMillis());
+        }
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    // Runs the reads in the supplier against the primary, whatever their transaction says
+    public static <T> T onPrimary(Supplier<T> reads) {
+        Boolean previous = FORCE_PRIMARY.get();
+        FORCE_PRIMARY.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (previous == null) {
+                FORCE_PRIMARY.remove();
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty()
+                || FORCE_PRIMARY.get() != null
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+
+        long maxLagMillis = maxLag.toMillis();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.lagMillis().get() <= maxLagMillis) {
+                metricsService.recordReadRouted(true);
+                return replica.name();
+            }
+        }
+
+        metricsService.recordReadRouted(false);
+        return PRIMARY;
+    }
+
+    @Scheduled(fixedDelayString = "${inference.datasource.lag-check-interval:PT5S}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+                rs.next();
+                long lag = rs.getLong(1);
+                long previous = replica.lagMillis().getAndSet(lag);
+                if (previous > maxLag.toMillis() && lag <= maxLag.toMillis()) {
+                    log.info("Replica {} back in rotation, lag {}ms", replica.name(), lag);
+                } else if (previous <= maxLag.toMillis() && lag > maxLag.toMillis()) {
+                    log.warn("Replica {} out of rotation, lag {}ms exceeds {}", replica.name(), lag, maxLag);
+                }
+
+            } catch (Exception e) {
+                if (replica.lagMillis().getAndSet(Long.MAX_VALUE) <= maxLag.toMillis()) {
+                    log.warn("Replica {} out of rotation, lag check failed", replica.name(), e);
+                }
+            }
+        }
+    }
+
+    public void close() {
+        replicas.forEach(replica -> replica.pool().close());
+    }
+}
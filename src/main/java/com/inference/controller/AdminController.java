@@ -0,0 +1,57 @@
+package com.inference.controller;
+
+import com.inference.service.DeadLetterReplayService;
+import com.inference.service.DeadLetterReplayStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Administration", description = "Operational endpoints for the processing pipeline")
+public class AdminController {
+
+    private final DeadLetterReplayService deadLetterReplayService;
+
+    @PostMapping("/dlq/replay")
+    @Operation(summary = "Replay dead-lettered classification results",
+            description = "Re-publishes up to maxMessages DLQ entries to the results topic at ratePerSecond, in the background")
+    @ApiResponse(responseCode = "202", description = "Replay started")
+    @ApiResponse(responseCode = "400", description = "Invalid limits")
+    @ApiResponse(responseCode = "409", description = "A replay is already running")
+    public ResponseEntity<DeadLetterReplayStatus> replayDeadLetters(
+            @RequestParam(defaultValue = "1000") int maxMessages,
+            @RequestParam(defaultValue = "100") int ratePerSecond) {
+        log.info("Received DLQ replay request: maxMessages={}, ratePerSecond={}", maxMessages, ratePerSecond);
+
+        try {
+            boolean started = deadLetterReplayService.startReplay(maxMessages, ratePerSecond);
+            return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                    .body(deadLetterReplayService.getStatus());
+
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid DLQ replay request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+    }
+
+    @GetMapping("/dlq/replay")
+    @Operation(summary = "Progress of the current or last DLQ replay")
+    public ResponseEntity<DeadLetterReplayStatus> getReplayStatus() {
+        return ResponseEntity.ok(deadLetterReplayService.getStatus());
+    }
+
+    @DeleteMapping("/dlq/replay")
+    @Operation(summary = "Stop a running DLQ replay after the current message")
+    public ResponseEntity<DeadLetterReplayStatus> stopReplay() {
+        deadLetterReplayService.stopReplay();
+        return ResponseEntity.ok(deadLetterReplayService.getStatus());
+    }
+}
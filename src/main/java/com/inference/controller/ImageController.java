@@ -1,18 +1,47 @@
 package com.inference.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inference.exception.RateLimitedException;
+import com.inference.exception.ServiceBusyException;
 import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import com.inference.repository.ImageSummary;
+import com.inference.service.BulkUploadItem;
+import com.inference.service.ClassificationStats;
+import com.inference.service.ClassificationStatsService;
+import com.inference.service.ImageNotificationService;
 import com.inference.service.ImageService;
+import com.inference.service.MultipartUploadEntrySource;
+import com.inference.service.UploadAdmissionService;
+import com.inference.service.UploadEntrySource;
+import com.inference.service.ZipUploadEntrySource;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/images")
@@ -23,6 +52,31 @@ import org.springframework.web.multipart.MultipartFile;
 public class ImageController {
 
     private final ImageService imageService;
+    private final ImageNotificationService imageNotificationService;
+    private final UploadAdmissionService uploadAdmissionService;
+    private final ClassificationStatsService classificationStatsService;
+    private final ObjectMapper objectMapper;
+
+    // Set by a trusted proxy to the client it authenticated or forwarded; ignored from anyone else,
+    // who could otherwise rotate it for a fresh rate limit bucket on every request
+    @Value("${inference.rate-limit.client-header:X-Client-Id}")
+    private String clientHeader;
+
+    @Value("${inference.rate-limit.trusted-proxies:}")
+    private Set<String> trustedProxies;
+
+    @Value("${inference.api.batch-status.max-ids:500}")
+    private int maxBatchStatusIds;
+
+    @Value("${inference.api.await.max-timeout:60s}")
+    private Duration maxAwaitTimeout;
+
+    @Value("${inference.api.list.max-limit:1000}")
+    private int maxListLimit;
+
+    // Open range bounds; both fit in a Postgres timestamp, unlike LocalDateTime.MIN/MAX
+    private static final LocalDateTime LIST_MIN_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LIST_MAX_TIME = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
 
     @PostMapping("/upload")
     @Operation(summary = "Upload an image for CLIP classification",
@@ -30,9 +84,12 @@ public class ImageController {
     @ApiResponse(responseCode = "201", description = "Image uploaded successfully",
             content = @Content(mediaType = "application/json", schema = @Schema(implementation = ImageEntity.class)))
     @ApiResponse(responseCode = "400", description = "Invalid file")
+    @ApiResponse(responseCode = "429", description = "Client over its rate limit or uploads being shed, retry after the Retry-After delay")
+    @ApiResponse(responseCode = "503", description = "Processing queue full, retry after the Retry-After delay")
     @ApiResponse(responseCode = "500", description = "Server error")
-    public ResponseEntity<ImageResponse> uploadImage(@RequestParam("file") MultipartFile file) {
-        try {
+    public ResponseEntity<ImageResponse> uploadImage(@RequestParam("file") MultipartFile file,
+                                                     HttpServletRequest request) {
+        try (UploadAdmissionService.Permit ignored = uploadAdmissionService.admit(clientId(request))) {
             log.info("Received image upload request: {}", file.getOriginalFilename());
 
             ImageEntity image = imageService.uploadImage(file);
@@ -49,12 +106,163 @@ public class ImageController {
         } catch (IllegalArgumentException e) {
             log.warn("Invalid image upload: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RateLimitedException e) {
+            log.debug("Upload throttled: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (ServiceBusyException e) {
+            log.warn("Upload rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
         } catch (Exception e) {
             log.error("Error uploading image", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // Rate limit key: the authenticated principal, else the client header from a trusted proxy, else the caller's address
+    private String clientId(HttpServletRequest request) {
+        if (request.getUserPrincipal() != null) {
+            return request.getUserPrincipal().getName();
+        }
+
+        String remoteAddr = request.getRemoteAddr();
+        if (trustedProxies.contains(remoteAddr)) {
+            String client = request.getHeader(clientHeader);
+            if (client != null && !client.isBlank()) {
+                return client;
+            }
+        }
+        return remoteAddr;
+    }
+
+    @PostMapping(value = "/bulk-upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Upload many images in one request",
+            description = "Accepts several 'files' parts; returns an id or an error per file")
+    @ApiResponse(responseCode = "200", description = "Per-file results")
+    @ApiResponse(responseCode = "429", description = "Client over its rate limit or uploads being shed, retry after the Retry-After delay")
+    @ApiResponse(responseCode = "500", description = "Server error")
+    public ResponseEntity<List<BulkUploadItem>> bulkUpload(@RequestParam("files") List<MultipartFile> files,
+                                                           HttpServletRequest request) {
+        log.info("Received bulk upload request with {} files", files.size());
+        return bulkUpload(clientId(request), () -> new MultipartUploadEntrySource(files));
+    }
+
+    @PostMapping(value = "/bulk-upload", consumes = "application/zip")
+    @Operation(summary = "Upload a zip archive of images",
+            description = "Streams the archive entry by entry; returns an id or an error per entry")
+    @ApiResponse(responseCode = "200", description = "Per-entry results")
+    @ApiResponse(responseCode = "400", description = "Malformed archive")
+    @ApiResponse(responseCode = "429", description = "Client over its rate limit or uploads being shed, retry after the Retry-After delay")
+    public ResponseEntity<List<BulkUploadItem>> bulkUploadZip(HttpServletRequest request) {
+        log.info("Received zip bulk upload request");
+        return bulkUpload(clientId(request), () -> new ZipUploadEntrySource(request.getInputStream()));
+    }
+
+    // Admitted before the body is opened; after that each entry takes a rate limit token as it is reached
+    private ResponseEntity<List<BulkUploadItem>> bulkUpload(String clientId, BulkSource source) {
+        try (UploadAdmissionService.Permit ignored = uploadAdmissionService.admit(clientId)) {
+            return ResponseEntity.ok(imageService.uploadImages(uploadAdmissionService.meter(clientId, source.open())));
+
+        } catch (IOException e) {
+            log.warn("Unreadable bulk upload: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (RateLimitedException e) {
+            log.debug("Bulk upload throttled: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        } catch (Exception e) {
+            log.error("Error in bulk upload", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private interface BulkSource {
+        UploadEntrySource open() throws IOException;
+    }
+
+    @GetMapping
+    @Operation(summary = "List images, newest first",
+            description = "Keyset-paginated; pass nextCursor from the previous page as cursor. "
+                    + "total is the maintained count for the status filter (not narrowed by from/to), null while unknown")
+    @ApiResponse(responseCode = "200", description = "One page of images")
+    @ApiResponse(responseCode = "400", description = "Invalid status, time range, cursor or limit")
+    public ResponseEntity<StreamingResponseBody> listImages(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        ImageStatus statusFilter;
+        LocalDateTime fromTime;
+        ImageCursor start;
+        try {
+            statusFilter = status != null ? ImageStatus.valueOf(status.toUpperCase()) : null;
+            fromTime = from != null ? LocalDateTime.parse(from) : LIST_MIN_TIME;
+            // Without a cursor the page starts just after the end of the range
+            start = cursor != null
+                    ? ImageCursor.decode(cursor)
+                    : new ImageCursor(to != null ? LocalDateTime.parse(to) : LIST_MAX_TIME, Long.MAX_VALUE);
+
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.warn("Invalid image listing request: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        if (limit < 1 || limit > maxListLimit) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        Long total = imageService.countImages(statusFilter);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartObject();
+                generator.writeObjectField("total", total);
+                generator.writeArrayFieldStart("items");
+
+                ImageSummary[] last = new ImageSummary[1];
+                int[] count = new int[1];
+                imageService.listImages(statusFilter, fromTime, start.getCreatedAt(), start.getId(), limit, image -> {
+                    try {
+                        generator.writeObject(ImageResponse.from(image));
+                        last[0] = image;
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                generator.writeEndArray();
+                // A short page is the last one
+                generator.writeObjectField("nextCursor", count[0] == limit
+                        ? new ImageCursor(last[0].getCreatedAt(), last[0].getId()).encode()
+                        : null);
+                generator.writeEndObject();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "Classification statistics",
+            description = "Images per status, plus outcomes, top labels and confidence histograms for the most recent "
+                    + "tumbling windows (newest first), merged across replicas; served from memory as of asOf")
+    @ApiResponse(responseCode = "200", description = "Statistics")
+    @ApiResponse(responseCode = "400", description = "windows out of range (1 to retention / window)")
+    public ResponseEntity<ClassificationStats> getStats(@RequestParam(defaultValue = "24") int windows) {
+        if (windows < 1 || windows > classificationStatsService.getMaxWindows()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        return ResponseEntity.ok(classificationStatsService.getStats(windows));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get image by ID", description = "Retrieve image status and classification result")
     @ApiResponse(responseCode = "200", description = "Image found")
@@ -65,17 +273,44 @@ public class ImageController {
 
             ImageEntity image = imageService.getImageWithCache(id);
 
-            ImageResponse response = ImageResponse.builder()
-                    .id(image.getId())
-                    .imageUrl(image.getImageUrl())
-                    .status(image.getStatus().toString())
-                    .classificationResult(image.getClassificationResult())
-                    .confidenceScore(image.getConfidenceScore())
-                    .createdAt(image.getCreatedAt())
-                    .updatedAt(image.getUpdatedAt())
-                    .build();
+            return ResponseEntity.ok(ImageResponse.from(image));
 
-            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            log.error("Image not found: {}", id);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    @GetMapping("/{id}/await")
+    @Operation(summary = "Wait for an image to finish processing",
+            description = "Long-poll: answers as soon as the image is COMPLETED or FAILED, "
+                    + "or with its current state once the timeout elapses")
+    @ApiResponse(responseCode = "200", description = "Image state")
+    @ApiResponse(responseCode = "404", description = "Image not found")
+    public DeferredResult<ResponseEntity<ImageResponse>> awaitImage(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "30") long timeoutSeconds) {
+        // Clamped before converting: milliseconds of an arbitrary client value overflow a long
+        long clampedSeconds = Math.max(1, Math.min(timeoutSeconds, maxAwaitTimeout.toSeconds()));
+        long timeoutMs = Math.min(Duration.ofSeconds(clampedSeconds).toMillis(), maxAwaitTimeout.toMillis());
+        DeferredResult<ResponseEntity<ImageResponse>> result = new DeferredResult<>(timeoutMs);
+
+        // Subscribe before reading the current state so a change in between is not missed
+        CompletableFuture<Long> change = imageNotificationService.subscribe(id);
+        result.onCompletion(() -> imageNotificationService.unsubscribe(id, change));
+        result.onTimeout(() -> result.setResult(currentState(id)));
+        change.thenRun(() -> result.setResult(currentState(id)));
+
+        ResponseEntity<ImageResponse> current = currentState(id);
+        if (current.getBody() == null || ImageStatus.valueOf(current.getBody().getStatus()).isTerminal()) {
+            result.setResult(current);
+        }
+        return result;
+    }
+
+    private ResponseEntity<ImageResponse> currentState(Long id) {
+        try {
+            return ResponseEntity.ok(ImageResponse.from(imageService.getImageWithCache(id)));
 
         } catch (RuntimeException e) {
             log.error("Image not found: {}", id);
@@ -83,6 +318,43 @@ public class ImageController {
         }
     }
 
+    @PostMapping("/batch-status")
+    @Operation(summary = "Get the status of many images in one call",
+            description = "Streams a JSON array with one entry per distinct id; unknown ids have status NOT_FOUND")
+    @ApiResponse(responseCode = "200", description = "Statuses resolved")
+    @ApiResponse(responseCode = "400", description = "Missing ids or too many ids")
+    public ResponseEntity<StreamingResponseBody> getBatchStatus(@RequestBody BatchStatusRequest request) {
+        if (request.getIds() == null || request.getIds().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        Set<Long> ids = new LinkedHashSet<>(request.getIds());
+        ids.remove(null);
+        if (ids.size() > maxBatchStatusIds) {
+            log.warn("Rejecting batch status request for {} ids (max {})", ids.size(), maxBatchStatusIds);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+        log.debug("Fetching status for {} images", ids.size());
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                imageService.getImagesWithCache(ids, (id, image) -> {
+                    try {
+                        generator.writeObject(image != null ? ImageResponse.from(image) : ImageResponse.notFound(id));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
     @GetMapping("/health")
     @Operation(summary = "Health check")
     public ResponseEntity<String> health() {
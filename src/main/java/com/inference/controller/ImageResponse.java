@@ -1,5 +1,7 @@
 package com.inference.controller;
 
+import com.inference.model.ImageEntity;
+import com.inference.repository.ImageSummary;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,4 +20,38 @@ public class ImageResponse {
     private Double confidenceScore;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    // Per-id marker used by batch lookups instead of failing the whole call
+    public static final String NOT_FOUND = "NOT_FOUND";
+
+    public static ImageResponse from(ImageEntity image) {
+        return ImageResponse.builder()
+                .id(image.getId())
+                .imageUrl(image.getImageUrl())
+                .status(image.getStatus().toString())
+                .classificationResult(image.getClassificationResult())
+                .confidenceScore(image.getConfidenceScore())
+                .createdAt(image.getCreatedAt())
+                .updatedAt(image.getUpdatedAt())
+                .build();
+    }
+
+    public static ImageResponse from(ImageSummary image) {
+        return ImageResponse.builder()
+                .id(image.getId())
+                .imageUrl(image.getImageUrl())
+                .status(image.getStatus().toString())
+                .classificationResult(image.getClassificationResult())
+                .confidenceScore(image.getConfidenceScore())
+                .createdAt(image.getCreatedAt())
+                .updatedAt(image.getUpdatedAt())
+                .build();
+    }
+
+    public static ImageResponse notFound(Long id) {
+        return ImageResponse.builder()
+                .id(id)
+                .status(NOT_FOUND)
+                .build();
+    }
 }
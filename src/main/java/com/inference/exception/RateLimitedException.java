@@ -0,0 +1,17 @@
+package com.inference.exception;
+
+import lombok.Getter;
+
+// Thrown when upload admission turns a client away; reason is rate, concurrency or shed
+@Getter
+public class RateLimitedException extends RuntimeException {
+
+    private final String reason;
+    private final long retryAfterSeconds;
+
+    public RateLimitedException(String message, String reason, long retryAfterSeconds) {
+        super(message);
+        this.reason = reason;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,15 @@
+package com.inference.exception;
+
+import lombok.Getter;
+
+// Thrown when a bounded internal queue is full and the caller should retry later
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,33 @@
+package com.inference.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClassificationResult {
+
+    public static final int UNKNOWN_PROCESSING_TIME = -1;
+
+    private static final String[] NO_LABELS = new String[0];
+    private static final float[] NO_SCORES = new float[0];
+
+    private long imageId;
+    private String label;
+    private double confidence;
+
+    // Worker-side inference time, or UNKNOWN_PROCESSING_TIME when not reported
+    @Builder.Default
+    private int processingTimeMs = UNKNOWN_PROCESSING_TIME;
+
+    // Runner-up labels, best first; topScores[i] belongs to topLabels[i]
+    @Builder.Default
+    private String[] topLabels = NO_LABELS;
+
+    @Builder.Default
+    private float[] topScores = NO_SCORES;
+}
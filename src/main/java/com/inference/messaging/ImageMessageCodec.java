@@ -0,0 +1,358 @@
+package com.inference.messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Binary envelope for the three image topics, plus a reader for the legacy colon-delimited strings.
+ *
+ * <pre>
+ * header   byte magic (0xC1), byte version (1), byte type
+ * request  long imageId, u16 length + s3Key, [int attempt]
+ * result   long imageId, double confidence, int processingTimeMs, u16 length + label,
+ *          u8 topK, topK x (u16 length + label, float score)
+ * error    long imageId, int errorCode, int length + message
+ * </pre>
+ *
+ * All integers are big-endian and strings UTF-8. Fields may only be appended: decoders use defaults
+ * for bracketed fields an older writer left out, and ignore trailing bytes they do not know. Any
+ * payload not starting with the magic byte is read as the legacy format ("imageId:s3Key",
+ * "imageId:label:confidence", "imageId:message").
+ */
+public final class ImageMessageCodec {
+
+    // Not valid as the first byte of UTF-8 text, so it can never be confused with a legacy message
+    public static final byte MAGIC = (byte) 0xC1;
+    public static final byte VERSION = 1;
+
+    static final byte TYPE_PROCESSING_REQUEST = 1;
+    static final byte TYPE_CLASSIFICATION_RESULT = 2;
+    static final byte TYPE_PROCESSING_ERROR = 3;
+
+    private static final int HEADER_BYTES = 3;
+    private static final int MAX_SHORT_STRING_BYTES = 0xFFFF;
+    private static final int MAX_TOP_K = 0xFF;
+
+    // Worker labels come from a small fixed vocabulary, so a repeated label decodes to the String cached for it
+    // instead of a new one. Decoding still allocates the message object and every other string it carries.
+    private static final LabelCache LABELS = new LabelCache();
+
+    private ImageMessageCodec() {
+    }
+
+    public static boolean isLegacy(byte[] payload) {
+        return payload.length == 0 || payload[0] != MAGIC;
+    }
+
+    // --- image-processing-topic ---
+
+    public static byte[] encodeProcessingRequest(long imageId, String s3Key, int attempt) {
+        byte[] key = shortString(s3Key);
+        byte[] out = new byte[HEADER_BYTES + 8 + 2 + key.length + 4];
+        int pos = writeHeader(out, TYPE_PROCESSING_REQUEST);
+        pos = writeLong(out, pos, imageId);
+        pos = writeShortString(out, pos, key);
+        writeInt(out, pos, attempt);
+        return out;
+    }
+
+    public static byte[] encodeLegacyProcessingRequest(long imageId, String s3Key) {
+        return (imageId + ":" + s3Key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static ProcessingRequest decodeProcessingRequest(byte[] payload) {
+        if (isLegacy(payload)) {
+            int colon = indexOf(payload, 0, (byte) ':');
+            return ProcessingRequest.builder()
+                    .imageId(parseLong(payload, 0, colon))
+                    .s3Key(new String(payload, colon + 1, payload.length - colon - 1, StandardCharsets.UTF_8))
+                    .build();
+        }
+
+        try {
+            int pos = readHeader(payload, TYPE_PROCESSING_REQUEST);
+            long imageId = readLong(payload, pos);
+            pos += 8;
+            int length = checkLength(payload, pos + 2, readShort(payload, pos));
+            String s3Key = new String(payload, pos + 2, length, StandardCharsets.UTF_8);
+            pos += 2 + length;
+
+            return ProcessingRequest.builder()
+                    .imageId(imageId)
+                    .s3Key(s3Key)
+                    .attempt(pos + 4 <= payload.length ? readInt(payload, pos) : ProcessingRequest.FIRST_ATTEMPT)
+                    .build();
+
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw truncated();
+        }
+    }
+
+    // --- image-classification-results ---
+
+    public static byte[] encodeResult(ClassificationResult result) {
+        byte[] label = shortString(result.getLabel());
+        String[] topLabels = result.getTopLabels();
+        int topK = Math.min(Math.min(topLabels.length, result.getTopScores().length), MAX_TOP_K);
+
+        byte[][] topLabelBytes = new byte[topK][];
+        int size = HEADER_BYTES + 8 + 8 + 4 + 2 + label.length + 1;
+        for (int i = 0; i < topK; i++) {
+            topLabelBytes[i] = shortString(topLabels[i]);
+            size += 2 + topLabelBytes[i].length + 4;
+        }
+
+        byte[] out = new byte[size];
+        int pos = writeHeader(out, TYPE_CLASSIFICATION_RESULT);
+        pos = writeLong(out, pos, result.getImageId());
+        pos = writeLong(out, pos, Double.doubleToRawLongBits(result.getConfidence()));
+        pos = writeInt(out, pos, result.getProcessingTimeMs());
+        pos = writeShortString(out, pos, label);
+        out[pos++] = (byte) topK;
+        for (int i = 0; i < topK; i++) {
+            pos = writeShortString(out, pos, topLabelBytes[i]);
+            pos = writeInt(out, pos, Float.floatToRawIntBits(result.getTopScores()[i]));
+        }
+        return out;
+    }
+
+    public static ClassificationResult decodeResult(byte[] payload) {
+        if (isLegacy(payload)) {
+            return decodeLegacyResult(payload);
+        }
+
+        try {
+            int pos = readHeader(payload, TYPE_CLASSIFICATION_RESULT);
+            long imageId = readLong(payload, pos);
+            double confidence = Double.longBitsToDouble(readLong(payload, pos + 8));
+            int processingTimeMs = readInt(payload, pos + 16);
+            pos += 20;
+
+            int labelLength = checkLength(payload, pos + 2, readShort(payload, pos));
+            String label = LABELS.get(payload, pos + 2, labelLength);
+            pos += 2 + labelLength;
+
+            int topK = payload[pos++] & 0xFF;
+            String[] topLabels = new String[topK];
+            float[] topScores = new float[topK];
+            for (int i = 0; i < topK; i++) {
+                int length = checkLength(payload, pos + 2, readShort(payload, pos));
+                topLabels[i] = LABELS.get(payload, pos + 2, length);
+                pos += 2 + length;
+                topScores[i] = Float.intBitsToFloat(readInt(payload, pos));
+                pos += 4;
+            }
+
+            return new ClassificationResult(imageId, label, confidence, processingTimeMs, topLabels, topScores);
+
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw truncated();
+        }
+    }
+
+    // "imageId:label:confidence"; the label may itself contain colons
+    private static ClassificationResult decodeLegacyResult(byte[] payload) {
+        int first = indexOf(payload, 0, (byte) ':');
+        int last = lastIndexOf(payload, (byte) ':');
+        if (last <= first) {
+            throw new IllegalArgumentException("Invalid message format");
+        }
+
+        ClassificationResult result = new ClassificationResult();
+        result.setImageId(parseLong(payload, 0, first));
+        result.setLabel(LABELS.get(payload, first + 1, last - first - 1));
+        try {
+            result.setConfidence(Double.parseDouble(
+                    new String(payload, last + 1, payload.length - last - 1, StandardCharsets.US_ASCII)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid confidence in message", e);
+        }
+        return result;
+    }
+
+    // --- image-processing-errors ---
+
+    public static byte[] encodeError(ProcessingError error) {
+        byte[] message = error.getMessage() == null ? new byte[0] : error.getMessage().getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[HEADER_BYTES + 8 + 4 + 4 + message.length];
+        int pos = writeHeader(out, TYPE_PROCESSING_ERROR);
+        pos = writeLong(out, pos, error.getImageId());
+        pos = writeInt(out, pos, error.getErrorCode());
+        pos = writeInt(out, pos, message.length);
+        System.arraycopy(message, 0, out, pos, message.length);
+        return out;
+    }
+
+    public static ProcessingError decodeError(byte[] payload) {
+        if (isLegacy(payload)) {
+            int colon = indexOf(payload, 0, (byte) ':');
+            return ProcessingError.builder()
+                    .imageId(parseLong(payload, 0, colon))
+                    .message(new String(payload, colon + 1, payload.length - colon - 1, StandardCharsets.UTF_8))
+                    .build();
+        }
+
+        try {
+            int pos = readHeader(payload, TYPE_PROCESSING_ERROR);
+            long imageId = readLong(payload, pos);
+            int errorCode = readInt(payload, pos + 8);
+            int length = checkLength(payload, pos + 16, readInt(payload, pos + 12));
+            return new ProcessingError(imageId, errorCode, new String(payload, pos + 16, length, StandardCharsets.UTF_8));
+
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw truncated();
+        }
+    }
+
+    // --- primitives ---
+
+    private static int writeHeader(byte[] out, byte type) {
+        out[0] = MAGIC;
+        out[1] = VERSION;
+        out[2] = type;
+        return HEADER_BYTES;
+    }
+
+    private static int readHeader(byte[] payload, byte expectedType) {
+        if (payload[1] < 1) {
+            throw new IllegalArgumentException("Unsupported message version: " + payload[1]);
+        }
+        if (payload[2] != expectedType) {
+            throw new IllegalArgumentException("Unexpected message type " + payload[2] + ", expected " + expectedType);
+        }
+        return HEADER_BYTES;
+    }
+
+    private static byte[] shortString(String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_SHORT_STRING_BYTES) {
+            throw new IllegalArgumentException("String field exceeds " + MAX_SHORT_STRING_BYTES + " bytes");
+        }
+        return bytes;
+    }
+
+    private static int writeShortString(byte[] out, int pos, byte[] value) {
+        out[pos] = (byte) (value.length >>> 8);
+        out[pos + 1] = (byte) value.length;
+        System.arraycopy(value, 0, out, pos + 2, value.length);
+        return pos + 2 + value.length;
+    }
+
+    private static int writeLong(byte[] out, int pos, long value) {
+        for (int i = 7; i >= 0; i--) {
+            out[pos + i] = (byte) value;
+            value >>>= 8;
+        }
+        return pos + 8;
+    }
+
+    private static int writeInt(byte[] out, int pos, int value) {
+        out[pos] = (byte) (value >>> 24);
+        out[pos + 1] = (byte) (value >>> 16);
+        out[pos + 2] = (byte) (value >>> 8);
+        out[pos + 3] = (byte) value;
+        return pos + 4;
+    }
+
+    private static long readLong(byte[] in, int pos) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (in[pos + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static int readInt(byte[] in, int pos) {
+        return (in[pos] & 0xFF) << 24 | (in[pos + 1] & 0xFF) << 16 | (in[pos + 2] & 0xFF) << 8 | (in[pos + 3] & 0xFF);
+    }
+
+    private static int readShort(byte[] in, int pos) {
+        return (in[pos] & 0xFF) << 8 | (in[pos + 1] & 0xFF);
+    }
+
+    private static int checkLength(byte[] in, int pos, int length) {
+        if (length < 0 || pos + length > in.length) {
+            throw truncated();
+        }
+        return length;
+    }
+
+    private static IllegalArgumentException truncated() {
+        return new IllegalArgumentException("Truncated message");
+    }
+
+    private static int indexOf(byte[] in, int from, byte value) {
+        for (int i = from; i < in.length; i++) {
+            if (in[i] == value) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Invalid message format");
+    }
+
+    private static int lastIndexOf(byte[] in, byte value) {
+        for (int i = in.length - 1; i >= 0; i--) {
+            if (in[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Parses ASCII digits in [from, to) without creating a String
+    private static long parseLong(byte[] in, int from, int to) {
+        if (from >= to) {
+            throw new IllegalArgumentException("Missing image id");
+        }
+
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = in[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw new IllegalArgumentException("Invalid image id");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Direct-mapped cache of decoded labels; a racy overwrite only costs one extra String
+    private static final class LabelCache {
+
+        private static final int SLOTS = 1024;
+        private static final int MAX_CACHED_BYTES = 128;
+
+        private final Entry[] entries = new Entry[SLOTS];
+
+        String get(byte[] in, int offset, int length) {
+            if (length > MAX_CACHED_BYTES) {
+                return new String(in, offset, length, StandardCharsets.UTF_8);
+            }
+
+            int hash = 1;
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + in[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+
+            Entry entry = entries[slot];
+            if (entry != null && Arrays.equals(entry.bytes, 0, entry.bytes.length, in, offset, offset + length)) {
+                return entry.value;
+            }
+
+            String value = new String(in, offset, length, StandardCharsets.UTF_8);
+            entries[slot] = new Entry(Arrays.copyOfRange(in, offset, offset + length), value);
+            return value;
+        }
+
+        private static final class Entry {
+            private final byte[] bytes;
+            private final String value;
+
+            private Entry(byte[] bytes, String value) {
+                this.bytes = bytes;
+                this.value = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.inference.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessingError {
+
+    public static final int UNKNOWN_ERROR_CODE = 0;
+
+    private long imageId;
+    @Builder.Default
+    private int errorCode = UNKNOWN_ERROR_CODE;
+    private String message;
+}
@@ -0,0 +1,22 @@
+package com.inference.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProcessingRequest {
+
+    public static final int FIRST_ATTEMPT = 0;
+
+    private long imageId;
+    private String s3Key;
+
+    // Number of times the image was re-enqueued after timing out; absent in legacy and older messages
+    @Builder.Default
+    private int attempt = FIRST_ATTEMPT;
+}
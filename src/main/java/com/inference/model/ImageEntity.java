@@ -2,13 +2,22 @@ package com.inference.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import java.time.LocalDateTime;
 
 @Entity
+// Range-partitioned by month on created_at; the schema lives in db/migration, these indexes mirror it
 @Table(name = "images", indexes = {
         @Index(name = "idx_s3_key", columnList = "s3_key"),
-        @Index(name = "idx_status", columnList = "status"),
-        @Index(name = "idx_created_at", columnList = "created_at")
+        // Keyset listing: (status, created_at, id) for status filters, (created_at, id) without.
+        // Their prefixes also serve the plain status and created_at lookups.
+        @Index(name = "idx_status_created_id", columnList = "status, created_at, id"),
+        @Index(name = "idx_created_id", columnList = "created_at, id"),
+        // Stale-job reaper: oldest untouched rows per non-terminal status
+        @Index(name = "idx_status_updated_at", columnList = "status, updated_at"),
+        @Index(name = "idx_content_hash", columnList = "content_hash")
 })
 @Data
 @NoArgsConstructor
@@ -16,16 +25,24 @@ import java.time.LocalDateTime;
 @Builder
 public class ImageEntity {
 
+    // Pooled sequence rather than IDENTITY so inserts batch; see PooledSequenceGenerator and V2__pooled_sequence_ids.sql
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "images_seq")
+    @GenericGenerator(name = "images_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "images_seq"))
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 500)
+    // Not unique across partitions (a unique index would have to include created_at); both embed a random UUID
+    @Column(nullable = false, length = 500)
     private String imageUrl;
 
-    @Column(name = "s3_key", nullable = false, unique = true, length = 500)
+    @Column(name = "s3_key", nullable = false, length = 500)
     private String s3Key;
 
+    // Hex SHA-256 of the uploaded bytes; null for rows uploaded before content dedup
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "status", nullable = false)
     @Enumerated(EnumType.STRING)
     private ImageStatus status;
@@ -48,6 +65,16 @@ public class ImageEntity {
     @Column(name = "error_message")
     private String errorMessage;
 
+    // Times the stuck-job reaper has re-enqueued this image
+    @Builder.Default
+    @Column(name = "attempts", columnDefinition = "integer default 0 not null")
+    private int attempts = 0;
+
+    // Optimistic lock
+    @Version
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private Long version;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
@@ -6,6 +6,11 @@ public enum ImageStatus {
     PROCESSING,
     COMPLETED,
     FAILED,
-    CACHED
+    CACHED;
+
+    // Terminal states never change again, so they are safe to serve from cache alone
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
 
 }
\ No newline at end of file
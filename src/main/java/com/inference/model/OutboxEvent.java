@@ -0,0 +1,44 @@
+package com.inference.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import java.time.LocalDateTime;
+
+// Kafka record written in the same transaction as the row it describes; relayed and deleted by OutboxRelay
+@Entity
+// Claimed and aged oldest first by created_at: pooled ids are not in creation order across nodes
+@Table(name = "image_outbox", indexes = @Index(name = "idx_outbox_created_id", columnList = "created_at, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(generator = "image_outbox_seq")
+    @GenericGenerator(name = "image_outbox_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "image_outbox_seq"))
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "message_key")
+    private String messageKey;
+
+    // Encoded with ImageMessageCodec
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+}
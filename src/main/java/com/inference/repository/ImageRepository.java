@@ -2,13 +2,20 @@ package com.inference.repository;
 
 import com.inference.model.ImageEntity;
 import com.inference.model.ImageStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ImageRepository extends JpaRepository<ImageEntity, Long>{
@@ -23,6 +30,64 @@ public interface ImageRepository extends JpaRepository<ImageEntity, Long>{
     List<ImageEntity> findRecentByStatus(@Param("status") ImageStatus status,
                                          @Param("from") LocalDateTime from);
 
+    // Read-only, so served by a replica when one is in rotation
+    @Transactional(readOnly = true)
     @Query("SELECT COUNT(i) FROM ImageEntity i WHERE i.status = :status")
     long countByStatus(@Param("status") ImageStatus status);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT i.status AS status, COUNT(i) AS count FROM ImageEntity i GROUP BY i.status")
+    List<StatusCount> countGroupedByStatus();
+
+    // Keyset pages, newest first: rows strictly before the (createdAt, id) cursor, served by idx_status_created_id
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT i.id AS id, i.imageUrl AS imageUrl, i.status AS status, " +
+            "i.classificationResult AS classificationResult, i.confidenceScore AS confidenceScore, " +
+            "i.createdAt AS createdAt, i.updatedAt AS updatedAt FROM ImageEntity i " +
+            "WHERE i.status = :status AND i.createdAt >= :from " +
+            "AND (i.createdAt < :beforeCreatedAt OR (i.createdAt = :beforeCreatedAt AND i.id < :beforeId)) " +
+            "ORDER BY i.createdAt DESC, i.id DESC")
+    Stream<ImageSummary> streamPageByStatus(@Param("status") ImageStatus status,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                            @Param("beforeId") long beforeId,
+                                            Pageable page);
+
+    // Same without a status filter, served by idx_created_id
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT i.id AS id, i.imageUrl AS imageUrl, i.status AS status, " +
+            "i.classificationResult AS classificationResult, i.confidenceScore AS confidenceScore, " +
+            "i.createdAt AS createdAt, i.updatedAt AS updatedAt FROM ImageEntity i " +
+            "WHERE i.createdAt >= :from " +
+            "AND (i.createdAt < :beforeCreatedAt OR (i.createdAt = :beforeCreatedAt AND i.id < :beforeId)) " +
+            "ORDER BY i.createdAt DESC, i.id DESC")
+    Stream<ImageSummary> streamPage(@Param("from") LocalDateTime from,
+                                    @Param("beforeCreatedAt") LocalDateTime beforeCreatedAt,
+                                    @Param("beforeId") long beforeId,
+                                    Pageable page);
+
+    // Oldest PENDING/PROCESSING rows untouched since the cutoff; rows another replica holds are skipped.
+    // created_at <= updated_at, so the created_at bound is implied but lets Postgres prune newer partitions.
+    // Uploads coalesced onto an older in-flight copy of the same content are left out: they have nothing
+    // queued of their own and finish with that copy, which is reaped in their place.
+    @Query(value = "SELECT * FROM images i WHERE status IN ('PENDING', 'PROCESSING') AND updated_at < :cutoff " +
+            "AND created_at < :cutoff AND NOT EXISTS (SELECT 1 FROM images l WHERE l.content_hash = i.content_hash " +
+            "AND l.status IN ('PENDING', 'PROCESSING') AND (l.created_at, l.id) < (i.created_at, i.id)) " +
+            "ORDER BY updated_at LIMIT :limit FOR UPDATE OF i SKIP LOCKED", nativeQuery = true)
+    List<ImageEntity> lockStaleBatch(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    // At most one row per hash: a COMPLETED copy if there is one, otherwise the oldest copy still in flight
+    @Query(value = "SELECT DISTINCT ON (content_hash) * FROM images " +
+            "WHERE content_hash IN (:hashes) AND status IN ('COMPLETED', 'PENDING', 'PROCESSING') " +
+            "ORDER BY content_hash, (status = 'COMPLETED') DESC, id", nativeQuery = true)
+    List<ImageEntity> findDedupCandidates(@Param("hashes") Collection<String> hashes);
+
+    List<ImageEntity> findByContentHashInAndStatusIn(Collection<String> contentHashes, Collection<ImageStatus> statuses);
+
+    // Transaction-scoped advisory locks, taken in key order in one round trip and released on commit or rollback.
+    // An array rather than a Collection: Hibernate expands a collection into a parenthesized list, a row
+    // constructor inside ARRAY[...], where an array is bound as a single bigint[] parameter.
+    @Query(value = "SELECT count(pg_advisory_xact_lock(k)) FROM " +
+            "(SELECT k FROM unnest(CAST(:keys AS bigint[])) AS t(k) ORDER BY k) AS ordered", nativeQuery = true)
+    long lockContentHashes(@Param("keys") Long[] keys);
 }
@@ -0,0 +1,21 @@
+package com.inference.repository;
+
+import com.inference.model.ImageStatus;
+import java.time.LocalDateTime;
+
+// Listing projection: only the columns ImageResponse returns, so Hibernate skips keys, hashes and error text
+public interface ImageSummary {
+    Long getId();
+
+    String getImageUrl();
+
+    ImageStatus getStatus();
+
+    String getClassificationResult();
+
+    Double getConfidenceScore();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
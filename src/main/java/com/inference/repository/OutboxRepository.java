@@ -0,0 +1,35 @@
+package com.inference.repository;
+
+import com.inference.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Oldest unclaimed rows first; rows being claimed by another relay are skipped rather than waited on
+    @Query(value = "SELECT * FROM image_outbox WHERE claimed_until IS NULL OR claimed_until < now() " +
+            "ORDER BY created_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    // Hides the rows from other relays for the lease, measured on the database clock
+    @Modifying
+    @Query(value = "UPDATE image_outbox SET claimed_until = now() + make_interval(secs => :seconds) WHERE id IN (:ids)",
+            nativeQuery = true)
+    int claim(@Param("ids") Collection<Long> ids, @Param("seconds") double seconds);
+
+    // Hands rows whose send failed back for the next pass instead of waiting out their lease
+    @Modifying
+    @Query(value = "UPDATE image_outbox SET claimed_until = NULL WHERE id IN (:ids)", nativeQuery = true)
+    int release(@Param("ids") Collection<Long> ids);
+
+    // Creation time of the oldest unsent row, claimed or not; null when the outbox is empty
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e")
+    LocalDateTime findOldestCreatedAt();
+}
@@ -0,0 +1,9 @@
+package com.inference.repository;
+
+import com.inference.model.ImageStatus;
+
+public interface StatusCount {
+    ImageStatus getStatus();
+
+    long getCount();
+}
@@ -0,0 +1,17 @@
+package com.inference.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUploadItem {
+    private String fileName;
+    private Long id;
+    private String status;
+    private String error;
+}
@@ -0,0 +1,34 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+// Result of a cache read: a cached image, a cached "does not exist", or nothing cached
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class CacheLookup {
+
+    private static final CacheLookup MISS = new CacheLookup(false, null);
+    private static final CacheLookup NOT_FOUND = new CacheLookup(true, null);
+
+    private final boolean hit;
+    private final ImageEntity image;
+
+    public static CacheLookup miss() {
+        return MISS;
+    }
+
+    public static CacheLookup notFound() {
+        return NOT_FOUND;
+    }
+
+    public static CacheLookup of(ImageEntity image) {
+        return new CacheLookup(true, image);
+    }
+
+    public boolean isNotFound() {
+        return hit && image == null;
+    }
+}
@@ -1,31 +1,126 @@
 package com.inference.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.inference.cache.CacheCodec;
 import com.inference.model.ImageEntity;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 @Service
 @RequiredArgsConstructor
 @Slf4j
 
 public class CacheService {
 
-    private final RedisTemplate<String, String> redisTemplate;
-    private final ObjectMapper objectMapper;
+    private final RedisTemplate<String, byte[]> cacheRedisTemplate;
+    private final CacheCodec cacheCodec;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MetricsService metricsService;
 
     private static final long CACHE_TTL_SECONDS = 3600; // 1 hour
-    private static final String CACHE_KEY_PREFIX = "image:";
+    private static final String CACHE_NAMESPACE = "image:";
+    // Zero-length payload: no codec ever produces one for a real image
+    private static final byte[] NOT_FOUND_MARKER = new byte[0];
+
+    // Invalidation messages are "<originNodeId>|<id,id,...>" or "<originNodeId>|*"
+    private static final String INVALIDATION_CHANNEL = "image-cache-invalidation";
+    private static final String ALL_KEYS = "*";
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${inference.cache.near.max-entries:10000}")
+    private long nearCacheMaxEntries;
+
+    @Value("${inference.cache.near.ttl:5m}")
+    private Duration nearCacheTtl;
+
+    @Value("${inference.cache.negative-ttl:30s}")
+    private Duration negativeTtl;
+
+    @Value("${inference.cache.clear.batch-size:1000}")
+    private int clearBatchSize;
+
+    // Bulk clears run off the caller's thread, one at a time
+    private final ExecutorService clearExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cache-clear");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean clearInProgress = new AtomicBoolean();
+
+    // L1: in-process, W-TinyLFU bounded, holds decoded lookups; L2: Redis shared by all replicas
+    private Cache<Long, CacheLookup> nearCache;
+
+    // "image:<codec version>:" so a codec change never decodes another format's bytes
+    private String cacheKeyPrefix;
+
+    @PostConstruct
+    void initNearCache() {
+        cacheKeyPrefix = CACHE_NAMESPACE + cacheCodec.keyVersion() + ":";
+        long ttlNanos = nearCacheTtl.toNanos();
+        long negativeTtlNanos = Math.min(negativeTtl.toNanos(), ttlNanos);
+        nearCache = Caffeine.newBuilder()
+                .maximumSize(nearCacheMaxEntries)
+                // Expire after write, but not-found entries only last their negative-ttl, like the Redis marker
+                .expireAfter(new Expiry<Long, CacheLookup>() {
+                    @Override
+                    public long expireAfterCreate(Long imageId, CacheLookup lookup, long currentTime) {
+                        return lookup.isNotFound() ? negativeTtlNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Long imageId, CacheLookup lookup, long currentTime, long currentDuration) {
+                        return expireAfterCreate(imageId, lookup, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Long imageId, CacheLookup lookup, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        metricsService.monitorNearCache(nearCache);
+        metricsService.monitorCacheClear(clearInProgress);
+
+        listenerContainer.addMessageListener(this::onInvalidation, new ChannelTopic(INVALIDATION_CHANNEL));
+        log.info("Near cache enabled: maxEntries={}, ttl={}, codec={}",
+                nearCacheMaxEntries, nearCacheTtl, cacheCodec.getClass().getSimpleName());
+    }
 
     public void cacheResult(Long imageId, ImageEntity image) {
         try {
-            String cacheKey = CACHE_KEY_PREFIX + imageId;
-            String jsonValue = objectMapper.writeValueAsString(image);
+            String cacheKey = cacheKeyPrefix + imageId;
 
-            redisTemplate.opsForValue()
-                    .set(cacheKey, jsonValue, Duration.ofSeconds(CACHE_TTL_SECONDS));
+            cacheRedisTemplate.opsForValue()
+                    .set(cacheKey, cacheCodec.encode(image), Duration.ofSeconds(CACHE_TTL_SECONDS));
+            nearCache.put(imageId, CacheLookup.of(image));
+            publishInvalidation(String.valueOf(imageId));
 
             log.debug("Cached image {}", imageId);
 
@@ -34,21 +129,157 @@ public class CacheService {
         }
     }
 
-    public String getFromCache(Long imageId) {
+    // Writes all entries in a single pipelined round trip
+    public void cacheResults(Collection<ImageEntity> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+
+        try {
+            RedisSerializer<String> serializer = RedisSerializer.string();
+            byte[] channel = serializer.serialize(INVALIDATION_CHANNEL);
+            byte[] invalidation = serializer.serialize(invalidationMessage(images.stream()
+                    .map(image -> String.valueOf(image.getId()))
+                    .collect(Collectors.joining(","))));
+
+            cacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ImageEntity image : images) {
+                    try {
+                        byte[] key = serializer.serialize(cacheKeyPrefix + image.getId());
+                        connection.stringCommands().setEx(key, CACHE_TTL_SECONDS, cacheCodec.encode(image));
+                        nearCache.put(image.getId(), CacheLookup.of(image));
+                    } catch (Exception e) {
+                        log.warn("Failed to cache image {}", image.getId(), e);
+                    }
+                }
+                connection.publish(channel, invalidation);
+                return null;
+            });
+
+            log.debug("Cached {} images", images.size());
+
+        } catch (Exception e) {
+            log.warn("Failed to cache {} images", images.size(), e);
+        }
+    }
+
+    public CacheLookup getCachedImage(Long imageId) {
+        CacheLookup nearValue = nearCache.getIfPresent(imageId);
+        if (nearValue != null) {
+            metricsService.recordL1CacheHit();
+            return nearValue;
+        }
+        metricsService.recordL1CacheMiss();
+
         try {
-            String cacheKey = CACHE_KEY_PREFIX + imageId;
-            return redisTemplate.opsForValue().get(cacheKey);
+            String cacheKey = cacheKeyPrefix + imageId;
+            long startTime = System.nanoTime();
+            byte[] value = cacheRedisTemplate.opsForValue().get(cacheKey);
+            metricsService.recordCacheLookup("get", System.nanoTime() - startTime);
+
+            if (value == null) {
+                metricsService.recordL2CacheMiss();
+                return CacheLookup.miss();
+            }
+
+            metricsService.recordL2CacheHit();
+            CacheLookup lookup = value.length == 0
+                    ? CacheLookup.notFound()
+                    : CacheLookup.of(cacheCodec.decode(value));
+            nearCache.put(imageId, lookup);
+            return lookup;
 
         } catch (Exception e) {
             log.warn("Failed to get from cache for image {}", imageId, e);
-            return null;
+            return CacheLookup.miss();
+        }
+    }
+
+    // L1 first, then a single MGET for everything L1 did not have; ids with no entry are absent from the result
+    public Map<Long, CacheLookup> getCachedImages(Collection<Long> imageIds) {
+        Map<Long, CacheLookup> hits = new HashMap<>();
+        List<Long> remoteIds = new ArrayList<>();
+        for (Long imageId : imageIds) {
+            CacheLookup nearValue = nearCache.getIfPresent(imageId);
+            if (nearValue != null) {
+                metricsService.recordL1CacheHit();
+                hits.put(imageId, nearValue);
+            } else {
+                metricsService.recordL1CacheMiss();
+                remoteIds.add(imageId);
+            }
+        }
+
+        if (remoteIds.isEmpty()) {
+            return hits;
+        }
+
+        try {
+            List<String> keys = remoteIds.stream()
+                    .map(imageId -> cacheKeyPrefix + imageId)
+                    .toList();
+            long startTime = System.nanoTime();
+            List<byte[]> values = cacheRedisTemplate.opsForValue().multiGet(keys);
+            metricsService.recordCacheLookup("mget", System.nanoTime() - startTime);
+
+            for (int i = 0; i < remoteIds.size(); i++) {
+                byte[] value = values == null ? null : values.get(i);
+                if (value == null) {
+                    metricsService.recordL2CacheMiss();
+                    continue;
+                }
+
+                metricsService.recordL2CacheHit();
+                CacheLookup lookup = value.length == 0
+                        ? CacheLookup.notFound()
+                        : CacheLookup.of(cacheCodec.decode(value));
+                nearCache.put(remoteIds.get(i), lookup);
+                hits.put(remoteIds.get(i), lookup);
+            }
+
+        } catch (Exception e) {
+            log.warn("Failed to get {} images from cache", remoteIds.size(), e);
+        }
+
+        return hits;
+    }
+
+    // Read-path backfill after a DB load: one pipeline, no invalidation broadcast since nothing changed
+    public void backfill(Collection<ImageEntity> images, Collection<Long> missingIds) {
+        if (images.isEmpty() && missingIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            RedisSerializer<String> serializer = RedisSerializer.string();
+            long negativeTtlSeconds = Math.max(1, negativeTtl.toSeconds());
+
+            cacheRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (ImageEntity image : images) {
+                    byte[] key = serializer.serialize(cacheKeyPrefix + image.getId());
+                    connection.stringCommands().setEx(key, CACHE_TTL_SECONDS, cacheCodec.encode(image));
+                    nearCache.put(image.getId(), CacheLookup.of(image));
+                }
+                for (Long imageId : missingIds) {
+                    byte[] key = serializer.serialize(cacheKeyPrefix + imageId);
+                    connection.stringCommands().setEx(key, negativeTtlSeconds, NOT_FOUND_MARKER);
+                    nearCache.put(imageId, CacheLookup.notFound());
+                }
+                return null;
+            });
+
+        } catch (Exception e) {
+            log.warn("Failed to backfill {} cache entries", images.size() + missingIds.size(), e);
         }
     }
 
     public void invalidateCache(Long imageId) {
+        nearCache.invalidate(imageId);
+
         try {
-            String cacheKey = CACHE_KEY_PREFIX + imageId;
-            redisTemplate.delete(cacheKey);
+            String cacheKey = cacheKeyPrefix + imageId;
+            cacheRedisTemplate.delete(cacheKey);
+            publishInvalidation(String.valueOf(imageId));
             log.debug("Invalidated cache for image {}", imageId);
 
         } catch (Exception e) {
@@ -56,13 +287,105 @@ public class CacheService {
         }
     }
 
-    public void clearAllCache() {
+    // Drops every L1 immediately, then removes Redis keys in the background without blocking Redis
+    public boolean clearAllCache() {
+        nearCache.invalidateAll();
+
         try {
-            redisTemplate.delete(redisTemplate.keys(CACHE_KEY_PREFIX + "*"));
-            log.info("Cleared all image cache");
+            publishInvalidation(ALL_KEYS);
+        } catch (Exception e) {
+            log.warn("Failed to broadcast cache clear", e);
+        }
+
+        if (!clearInProgress.compareAndSet(false, true)) {
+            log.info("Cache clear already in progress");
+            return false;
+        }
+
+        clearExecutor.execute(() -> {
+            try {
+                unlinkNamespace();
+            } finally {
+                clearInProgress.set(false);
+            }
+        });
+        return true;
+    }
+
+    // Cursor-based SCAN with one UNLINK per bounded batch, instead of a keyspace-wide KEYS
+    private void unlinkNamespace() {
+        long startTime = System.currentTimeMillis();
+        long removed = 0;
+
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(CACHE_NAMESPACE + "*")
+                .count(clearBatchSize)
+                .build();
+
+        try (Cursor<String> cursor = cacheRedisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(clearBatchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= clearBatchSize) {
+                    removed += unlinkBatch(batch);
+                }
+            }
+            removed += unlinkBatch(batch);
+
+            log.info("Cleared all image cache: {} keys in {}ms", removed, System.currentTimeMillis() - startTime);
 
         } catch (Exception e) {
-            log.error("Failed to clear all cache", e);
+            log.error("Failed to clear all cache after removing {} keys", removed, e);
+        }
+    }
+
+    private long unlinkBatch(List<String> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Long unlinked = cacheRedisTemplate.unlink(batch);
+        batch.clear();
+
+        long count = unlinked == null ? 0 : unlinked;
+        metricsService.recordCacheKeysCleared(count);
+        return count;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        clearExecutor.shutdownNow();
+    }
+
+    private void publishInvalidation(String ids) {
+        cacheRedisTemplate.convertAndSend(INVALIDATION_CHANNEL,
+                invalidationMessage(ids).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String invalidationMessage(String ids) {
+        return nodeId + "|" + ids;
+    }
+
+    // Drops L1 entries another replica has overwritten or invalidated
+    private void onInvalidation(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.startsWith(nodeId)) {
+            return;
+        }
+
+        String ids = body.substring(separator + 1);
+        if (ALL_KEYS.equals(ids)) {
+            nearCache.invalidateAll();
+            return;
+        }
+
+        for (String id : ids.split(",")) {
+            try {
+                nearCache.invalidate(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed cache invalidation: {}", body);
+            }
         }
     }
 }
@@ -0,0 +1,55 @@
+package com.inference.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ClassificationStats {
+
+    // Images currently in each status, from the maintained counts; null while unknown
+    private Map<String, Long> statusCounts;
+
+    private long windowSeconds;
+
+    // When the merged snapshot was last read back from Postgres; results since then are not included yet
+    private LocalDateTime asOf;
+
+    // Newest first
+    private List<WindowStats> windows;
+
+    // Over all returned windows: outcomes per terminal status, top labels and the overall confidence histogram
+    private Map<String, Long> outcomes;
+    private List<LabelStats> labels;
+    private long[] confidenceHistogram;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class WindowStats {
+        private LocalDateTime start;
+        private Map<String, Long> outcomes;
+        private List<LabelStats> labels;
+        private long[] confidenceHistogram;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class LabelStats {
+        private String label;
+        private long count;
+        // Over the results that reported a confidence; null if none did
+        private Double meanConfidence;
+        private long[] confidenceHistogram;
+    }
+}
@@ -0,0 +1,342 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Outcome counts, per-label counts and confidence histograms per tumbling window, so GET /images/stats never
+// touches the images table. Results are counted in memory as they commit; every snapshot-interval each replica
+// adds its deltas to classification_stats (V4__classification_stats.sql), where the upsert merges replicas,
+// and reads the merged rows back into the snapshot the endpoint serves.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ClassificationStatsService {
+
+    // Equal-width buckets over [0, 1]; bucket i holds [i/n, (i+1)/n), the last one also 1.0
+    public static final int CONFIDENCE_BUCKETS = 10;
+
+    private static final String NO_LABEL = "";
+    // Takes every label past max-labels, so an unbounded label set cannot grow memory or the table without limit
+    private static final String OTHER_LABEL = "(other)";
+    private static final int MAX_LABEL_LENGTH = 255;
+
+    private static final String UPSERT = "INSERT INTO classification_stats " +
+            "(window_start, status, label, count, confidence_sum, confidence_buckets) VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (window_start, status, label) DO UPDATE SET " +
+            "count = classification_stats.count + EXCLUDED.count, " +
+            "confidence_sum = classification_stats.confidence_sum + EXCLUDED.confidence_sum, " +
+            "confidence_buckets = ARRAY(SELECT a + b FROM unnest(classification_stats.confidence_buckets, " +
+            "EXCLUDED.confidence_buckets) WITH ORDINALITY AS t(a, b, i) ORDER BY i)";
+    private static final String SELECT_SINCE = "SELECT window_start, status, label, count, confidence_sum, " +
+            "confidence_buckets FROM classification_stats WHERE window_start >= ?";
+    private static final String DELETE_BEFORE = "DELETE FROM classification_stats WHERE window_start < ?";
+
+    // Same order on every replica, so concurrent upserts lock rows in the same sequence and cannot deadlock
+    private static final Comparator<CellKey> CELL_ORDER = Comparator.comparing(CellKey::windowStart)
+            .thenComparing(CellKey::status)
+            .thenComparing(CellKey::label);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ImageCountService imageCountService;
+
+    @Value("${inference.stats.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inference.stats.window:1h}")
+    private Duration window;
+
+    @Value("${inference.stats.retention:48h}")
+    private Duration retention;
+
+    @Value("${inference.stats.max-labels:1000}")
+    private int maxLabels;
+
+    @Value("${inference.stats.top-labels:20}")
+    private int topLabels;
+
+    // Results committed on this node since its last snapshot
+    private final ConcurrentMap<CellKey, Cell> pending = new ConcurrentHashMap<>();
+
+    // Distinct labels this node has recorded per window, kept across snapshots so max-labels holds for the window
+    private final ConcurrentMap<LocalDateTime, Set<String>> windowLabels = new ConcurrentHashMap<>();
+
+    private volatile Snapshot snapshot = new Snapshot(null, Collections.emptyNavigableMap(), new ConcurrentHashMap<>());
+
+    private record CellKey(LocalDateTime windowStart, ImageStatus status, String label) {
+    }
+
+    // Merged totals by window as of the last refresh, and the views built from them by number of windows
+    private record Snapshot(LocalDateTime asOf, NavigableMap<LocalDateTime, Map<CellKey, Cell>> windows,
+                            ConcurrentMap<Integer, ClassificationStats> views) {
+    }
+
+    private static final class Cell {
+        private long count;
+        private double confidenceSum;
+        private final long[] buckets = new long[CONFIDENCE_BUCKETS];
+
+        Cell add(Double confidence) {
+            count++;
+            if (confidence != null) {
+                confidenceSum += confidence;
+                buckets[Math.min(CONFIDENCE_BUCKETS - 1, Math.max(0, (int) (confidence * CONFIDENCE_BUCKETS)))]++;
+            }
+            return this;
+        }
+
+        Cell merge(Cell other) {
+            count += other.count;
+            confidenceSum += other.confidenceSum;
+            addInto(buckets, other.buckets);
+            return this;
+        }
+    }
+
+    // Images that just reached a terminal state; call after their transaction has committed
+    public void record(Collection<ImageEntity> images) {
+        if (!enabled || images.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime windowStart = windowStart(LocalDateTime.now());
+        Set<String> labels = labelsIn(windowStart);
+        for (ImageEntity image : images) {
+            String label = label(image);
+            if (!label.equals(NO_LABEL) && !labels.contains(label)) {
+                if (labels.size() >= maxLabels) {
+                    label = OTHER_LABEL;
+                } else {
+                    labels.add(label);
+                }
+            }
+            CellKey key = new CellKey(windowStart, image.getStatus(), label);
+            Double confidence = image.getStatus() == ImageStatus.COMPLETED ? image.getConfidenceScore() : null;
+            pending.compute(key, (k, cell) -> (cell != null ? cell : new Cell()).add(confidence));
+        }
+    }
+
+    // The most recent windows, newest (still open) first; served from memory, built once per refresh
+    public ClassificationStats getStats(int windows) {
+        Snapshot current = snapshot;
+        return current.views().computeIfAbsent(windows, n -> buildView(current, n))
+                .toBuilder()
+                .statusCounts(imageCountService.getCounts())
+                .build();
+    }
+
+    public int getMaxWindows() {
+        return (int) Math.max(1, retention.toSeconds() / window.toSeconds());
+    }
+
+    @Scheduled(fixedDelayString = "${inference.stats.snapshot-interval:PT30S}")
+    public void snapshot() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Failed to write classification stats, keeping them for the next snapshot", e);
+        }
+
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Failed to read classification stats", e);
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        if (enabled) {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.warn("Failed to write classification stats on shutdown", e);
+            }
+        }
+    }
+
+    // Adds this node's deltas in one transaction; on failure they go back into pending for the next pass
+    private void flush() {
+        NavigableMap<CellKey, Cell> batch = new TreeMap<>(CELL_ORDER);
+        for (CellKey key : pending.keySet()) {
+            Cell cell = pending.remove(key);
+            if (cell != null) {
+                batch.put(key, cell);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<CellKey, Cell>> rows = new ArrayList<>(batch.entrySet());
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT, rows, rows.size(),
+                    (ps, row) -> {
+                        Cell cell = row.getValue();
+                        Long[] buckets = new Long[CONFIDENCE_BUCKETS];
+                        for (int i = 0; i < CONFIDENCE_BUCKETS; i++) {
+                            buckets[i] = cell.buckets[i];
+                        }
+                        ps.setObject(1, row.getKey().windowStart());
+                        ps.setString(2, row.getKey().status().name());
+                        ps.setString(3, row.getKey().label());
+                        ps.setLong(4, cell.count);
+                        ps.setDouble(5, cell.confidenceSum);
+                        ps.setArray(6, ps.getConnection().createArrayOf("bigint", buckets));
+                    }));
+
+        } catch (RuntimeException e) {
+            batch.forEach((key, cell) -> pending.merge(key, cell, Cell::merge));
+            throw e;
+        }
+    }
+
+    // Only the open window and the one before it still receive deltas (a replica adds what arrived before a window
+    // closed on its next snapshot), so older windows are carried over from the previous read instead of re-read
+    private void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime currentWindow = windowStart(now);
+        LocalDateTime oldest = currentWindow.minus(retention);
+        jdbcTemplate.update(DELETE_BEFORE, oldest);
+
+        NavigableMap<LocalDateTime, Map<CellKey, Cell>> previous = snapshot.windows();
+        LocalDateTime from = previous.isEmpty() ? oldest : currentWindow.minus(window);
+        NavigableMap<LocalDateTime, Map<CellKey, Cell>> windows = new TreeMap<>(previous.tailMap(oldest, true).headMap(from, false));
+
+        jdbcTemplate.query(SELECT_SINCE, (RowCallbackHandler) rs -> {
+            CellKey key = new CellKey(rs.getObject(1, LocalDateTime.class), ImageStatus.valueOf(rs.getString(2)), rs.getString(3));
+            Cell cell = new Cell();
+            cell.count = rs.getLong(4);
+            cell.confidenceSum = rs.getDouble(5);
+            Object[] buckets = (Object[]) rs.getArray(6).getArray();
+            for (int i = 0; i < Math.min(buckets.length, CONFIDENCE_BUCKETS); i++) {
+                cell.buckets[i] = ((Number) buckets[i]).longValue();
+            }
+            windows.computeIfAbsent(key.windowStart(), start -> new HashMap<>()).put(key, cell);
+        }, from);
+
+        snapshot = new Snapshot(now, Collections.unmodifiableNavigableMap(windows), new ConcurrentHashMap<>());
+    }
+
+    private ClassificationStats buildView(Snapshot current, int windowCount) {
+        LocalDateTime newest = windowStart(current.asOf() != null ? current.asOf() : LocalDateTime.now());
+        List<ClassificationStats.WindowStats> windowStats = new ArrayList<>(windowCount);
+        Map<String, Long> totalOutcomes = new TreeMap<>();
+        Map<String, Cell> totalLabels = new HashMap<>();
+        long[] totalHistogram = new long[CONFIDENCE_BUCKETS];
+
+        for (int i = 0; i < windowCount; i++) {
+            LocalDateTime start = newest.minus(window.multipliedBy(i));
+            Map<String, Long> outcomes = new TreeMap<>();
+            Map<String, Cell> labels = new HashMap<>();
+            long[] histogram = new long[CONFIDENCE_BUCKETS];
+
+            current.windows().getOrDefault(start, Map.of()).forEach((key, cell) -> {
+                outcomes.merge(key.status().name(), cell.count, Long::sum);
+                if (key.status() == ImageStatus.COMPLETED) {
+                    labels.computeIfAbsent(key.label(), label -> new Cell()).merge(cell);
+                    totalLabels.computeIfAbsent(key.label(), label -> new Cell()).merge(cell);
+                    addInto(histogram, cell.buckets);
+                }
+            });
+            outcomes.forEach((status, count) -> totalOutcomes.merge(status, count, Long::sum));
+            addInto(totalHistogram, histogram);
+
+            windowStats.add(ClassificationStats.WindowStats.builder()
+                    .start(start)
+                    .outcomes(outcomes)
+                    .labels(top(labels))
+                    .confidenceHistogram(histogram)
+                    .build());
+        }
+
+        return ClassificationStats.builder()
+                .windowSeconds(window.toSeconds())
+                .asOf(current.asOf())
+                .windows(windowStats)
+                .outcomes(totalOutcomes)
+                .labels(top(totalLabels))
+                .confidenceHistogram(totalHistogram)
+                .build();
+    }
+
+    // Most frequent first, ties by label
+    private List<ClassificationStats.LabelStats> top(Map<String, Cell> labels) {
+        return labels.entrySet().stream()
+                .sorted(Map.Entry.<String, Cell>comparingByValue(Comparator.comparingLong(cell -> -cell.count))
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(topLabels)
+                .map(entry -> {
+                    Cell cell = entry.getValue();
+                    long withConfidence = 0;
+                    for (long bucket : cell.buckets) {
+                        withConfidence += bucket;
+                    }
+                    return ClassificationStats.LabelStats.builder()
+                            .label(entry.getKey())
+                            .count(cell.count)
+                            .meanConfidence(withConfidence > 0 ? cell.confidenceSum / withConfidence : null)
+                            .confidenceHistogram(cell.buckets.clone())
+                            .build();
+                })
+                .toList();
+    }
+
+    // Opening a window drops the label sets of the ones before it, which no longer receive results
+    private Set<String> labelsIn(LocalDateTime windowStart) {
+        Set<String> labels = windowLabels.get(windowStart);
+        if (labels == null) {
+            windowLabels.keySet().removeIf(start -> start.isBefore(windowStart));
+            labels = windowLabels.computeIfAbsent(windowStart, start -> ConcurrentHashMap.newKeySet());
+        }
+        return labels;
+    }
+
+    // Windows are aligned to the epoch in the same local time the timestamps are stored in
+    private LocalDateTime windowStart(LocalDateTime time) {
+        long size = window.toSeconds();
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), size) * size, 0, ZoneOffset.UTC);
+    }
+
+    private static String label(ImageEntity image) {
+        String label = image.getStatus() == ImageStatus.COMPLETED ? image.getClassificationResult() : null;
+        if (label == null) {
+            return NO_LABEL;
+        }
+        return label.length() > MAX_LABEL_LENGTH ? label.substring(0, MAX_LABEL_LENGTH) : label;
+    }
+
+    private static void addInto(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+}
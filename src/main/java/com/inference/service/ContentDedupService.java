@@ -0,0 +1,131 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import com.inference.repository.ImageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Skips inference for bytes we have already seen. An upload whose content hash matches a COMPLETED image
+// inherits that result; one matching an image still in flight waits for it instead of being queued again.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContentDedupService {
+
+    private static final List<ImageStatus> IN_FLIGHT = List.of(ImageStatus.PENDING, ImageStatus.PROCESSING);
+
+    private final ImageRepository imageRepository;
+    private final MetricsService metricsService;
+
+    @Value("${inference.dedup.enabled:true}")
+    private boolean enabled;
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toHex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Must run inside the upload transaction, before the images are saved. Images matching a COMPLETED one
+    // become COMPLETED; the rest stay PENDING. Returns the images that still need to be sent for inference.
+    public List<ImageEntity> resolve(List<ImageEntity> images) {
+        if (!enabled) {
+            return images;
+        }
+
+        Set<String> hashes = images.stream()
+                .map(ImageEntity::getContentHash)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (hashes.isEmpty()) {
+            return images;
+        }
+
+        // Serializes uploads of the same bytes across replicas until commit, so concurrent duplicates see each other
+        lock(hashes);
+
+        Map<String, ImageEntity> known = new HashMap<>();
+        for (ImageEntity existing : imageRepository.findDedupCandidates(hashes)) {
+            known.put(existing.getContentHash(), existing);
+        }
+
+        List<ImageEntity> toProcess = new ArrayList<>(images.size());
+        for (ImageEntity image : images) {
+            ImageEntity existing = image.getContentHash() == null ? null : known.get(image.getContentHash());
+
+            if (existing == null) {
+                // First copy: it is processed, and later copies in this batch wait for it
+                if (image.getContentHash() != null) {
+                    known.put(image.getContentHash(), image);
+                }
+                toProcess.add(image);
+                metricsService.recordContentDedup("miss");
+
+            } else if (existing.getStatus() == ImageStatus.COMPLETED) {
+                inherit(image, existing);
+                metricsService.recordContentDedup("completed");
+
+            } else {
+                // Picked up by findFollowers once the in-flight copy finishes
+                log.debug("Upload with hash {} coalesced onto in-flight image {}", image.getContentHash(), existing.getId());
+                metricsService.recordContentDedup("coalesced");
+            }
+        }
+        return toProcess;
+    }
+
+    // Copies waiting on the given images, which have just reached a terminal state
+    public List<ImageEntity> findFollowers(Collection<ImageEntity> finished) {
+        if (!enabled) {
+            return List.of();
+        }
+
+        Set<String> hashes = finished.stream()
+                .map(ImageEntity::getContentHash)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (hashes.isEmpty()) {
+            return List.of();
+        }
+
+        // Waits out uploads of the same bytes that are mid-commit, so none is left waiting on a finished image
+        lock(hashes);
+        return imageRepository.findByContentHashInAndStatusIn(hashes, IN_FLIGHT);
+    }
+
+    // An upload hit takes no time; followers get their own end-to-end time from ImageService
+    static void inherit(ImageEntity image, ImageEntity source) {
+        image.setStatus(ImageStatus.COMPLETED);
+        image.setClassificationResult(source.getClassificationResult());
+        image.setConfidenceScore(source.getConfidenceScore());
+        image.setProcessingTimeMs(0L);
+    }
+
+    // Advisory lock key per hash: its first 8 bytes
+    private void lock(Set<String> hashes) {
+        imageRepository.lockContentHashes(hashes.stream()
+                .map(hash -> Long.parseUnsignedLong(hash.substring(0, 16), 16))
+                .distinct()
+                .toArray(Long[]::new));
+    }
+}
@@ -0,0 +1,158 @@
+package com.inference.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Moves dead-lettered results back onto the main results topic at a fixed rate. Offsets are tracked by a
+// dedicated consumer group, so each DLQ entry is replayed at most once per successful send.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterReplayService {
+
+    private static final String REPLAY_GROUP_ID = "image-service-dlq-replay";
+
+    // Stop once the DLQ has been quiet for this many consecutive polls
+    private static final int MAX_EMPTY_POLLS = 3;
+
+    private final ConsumerFactory<Object, Object> consumerFactory;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final MetricsService metricsService;
+
+    @Value("${inference.dlq.replay.max-rate:1000}")
+    private int maxRatePerSecond;
+
+    @Value("${inference.dlq.replay.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dlq-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean stopRequested = new AtomicBoolean();
+    private final AtomicLong replayed = new AtomicLong();
+    private volatile String lastError;
+
+    @PreDestroy
+    void shutdown() {
+        stopRequested.set(true);
+        replayExecutor.shutdown();
+    }
+
+    // Returns false if a replay is already running
+    public boolean startReplay(int maxMessages, int ratePerSecond) {
+        if (maxMessages <= 0 || ratePerSecond <= 0) {
+            throw new IllegalArgumentException("maxMessages and ratePerSecond must be positive");
+        }
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+
+        int rate = Math.min(ratePerSecond, maxRatePerSecond);
+        replayed.set(0);
+        lastError = null;
+        stopRequested.set(false);
+
+        replayExecutor.execute(() -> {
+            try {
+                replay(maxMessages, rate);
+            } catch (Exception e) {
+                log.error("DLQ replay stopped after {} messages", replayed.get(), e);
+                lastError = e.getMessage();
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public void stopReplay() {
+        stopRequested.set(true);
+    }
+
+    public DeadLetterReplayStatus getStatus() {
+        return DeadLetterReplayStatus.builder()
+                .running(running.get())
+                .replayed(replayed.get())
+                .lastError(lastError)
+                .build();
+    }
+
+    private void replay(int maxMessages, int ratePerSecond) throws Exception {
+        long startTime = System.currentTimeMillis();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        log.info("Replaying up to {} messages from {} at {}/s",
+                maxMessages, ImageProcessingConsumer.RESULTS_DLQ_TOPIC, ratePerSecond);
+
+        try (Consumer<Object, Object> consumer = consumerFactory.createConsumer(REPLAY_GROUP_ID, "-replay")) {
+            consumer.subscribe(List.of(ImageProcessingConsumer.RESULTS_DLQ_TOPIC));
+
+            long nextSend = System.nanoTime();
+            int emptyPolls = 0;
+            while (replayed.get() < maxMessages && !stopRequested.get()) {
+                ConsumerRecords<Object, Object> records = consumer.poll(Duration.ofSeconds(1));
+                if (records.isEmpty()) {
+                    if (++emptyPolls >= MAX_EMPTY_POLLS) {
+                        break;
+                    }
+                    continue;
+                }
+                emptyPolls = 0;
+
+                // Records fetched but not sent (limit or stop reached) stay uncommitted for the next replay
+                Map<TopicPartition, OffsetAndMetadata> sent = new HashMap<>();
+                try {
+                    for (ConsumerRecord<Object, Object> record : records) {
+                        if (replayed.get() >= maxMessages || stopRequested.get()) {
+                            break;
+                        }
+
+                        long wait = nextSend - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        nextSend = Math.max(nextSend, System.nanoTime()) + intervalNanos;
+
+                        kafkaTemplate.send(ImageProcessingConsumer.RESULTS_TOPIC, (String) record.key(), (byte[]) record.value())
+                                .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                        sent.put(new TopicPartition(record.topic(), record.partition()),
+                                new OffsetAndMetadata(record.offset() + 1));
+                        replayed.incrementAndGet();
+                        metricsService.recordDeadLetterReplayed();
+                    }
+
+                } finally {
+                    // Commit what went out even if a later send failed
+                    if (!sent.isEmpty()) {
+                        consumer.commitSync(sent);
+                    }
+                }
+            }
+        }
+
+        log.info("DLQ replay finished: {} messages in {}ms", replayed.get(), System.currentTimeMillis() - startTime);
+    }
+}
@@ -0,0 +1,16 @@
+package com.inference.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DeadLetterReplayStatus {
+    private boolean running;
+    private long replayed;
+    private String lastError;
+}
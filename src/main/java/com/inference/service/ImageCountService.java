@@ -0,0 +1,185 @@
+package com.inference.service;
+
+import com.inference.config.ReplicaRoutingDataSource;
+import com.inference.model.ImageStatus;
+import com.inference.repository.ImageRepository;
+import com.inference.repository.StatusCount;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+// Per-status image counts kept in one Redis hash, so listing totals never scan the images table.
+// Writers apply deltas after their transaction commits; a periodic GROUP BY on the primary corrects any drift.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageCountService {
+
+    // Outside CacheService's image: namespace, which clearAllCache deletes wholesale
+    private static final String COUNTS_KEY = "images:counts";
+    private static final String RECONCILE_LOCK_KEY = "images:counts:reconcile";
+    // Deltas applied while a reconcile's GROUP BY runs, added back onto its snapshot
+    private static final String JOURNAL_KEY = "images:counts:journal";
+    private static final String JOURNAL_TOKEN = "_token";
+
+    private static final RedisScript<Long> INCREMENT =
+            RedisScript.of(new ClassPathResource("scripts/image_counts_increment.lua"), Long.class);
+    private static final RedisScript<Long> RECONCILE =
+            RedisScript.of(new ClassPathResource("scripts/image_counts_reconcile.lua"), Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ImageRepository imageRepository;
+
+    @Value("${inference.counts.reconcile-interval:PT15M}")
+    private Duration reconcileInterval;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public static Map<ImageStatus, Long> newDeltas() {
+        return new EnumMap<>(ImageStatus.class);
+    }
+
+    public static void move(Map<ImageStatus, Long> deltas, ImageStatus from, ImageStatus to) {
+        if (from != to) {
+            deltas.merge(from, -1L, Long::sum);
+            deltas.merge(to, 1L, Long::sum);
+        }
+    }
+
+    // Deferred to afterCommit when called inside a transaction, so rolled-back writes are never counted
+    public void apply(Map<ImageStatus, Long> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    increment(deltas);
+                }
+            });
+        } else {
+            increment(deltas);
+        }
+    }
+
+    // Null for an unknown status or before the first reconcile has populated the hash
+    public Long getCount(ImageStatus status) {
+        try {
+            Object value = redisTemplate.opsForHash().get(COUNTS_KEY, status.name());
+            return value == null ? null : Math.max(0, Long.parseLong(value.toString()));
+
+        } catch (Exception e) {
+            log.warn("Failed to read image count for {}", status, e);
+            return null;
+        }
+    }
+
+    public Long getTotalCount() {
+        try {
+            List<Object> values = redisTemplate.opsForHash().values(COUNTS_KEY);
+            if (values.isEmpty()) {
+                return null;
+            }
+            return values.stream()
+                    .mapToLong(value -> Math.max(0, Long.parseLong(value.toString())))
+                    .sum();
+
+        } catch (Exception e) {
+            log.warn("Failed to read total image count", e);
+            return null;
+        }
+    }
+
+    // Every status in one round trip; null before the first reconcile has populated the hash
+    public Map<String, Long> getCounts() {
+        try {
+            Map<Object, Object> entries = redisTemplate.opsForHash().entries(COUNTS_KEY);
+            if (entries.isEmpty()) {
+                return null;
+            }
+            Map<String, Long> counts = new TreeMap<>();
+            entries.forEach((status, value) -> counts.put(status.toString(), Math.max(0, Long.parseLong(value.toString()))));
+            return counts;
+
+        } catch (Exception e) {
+            log.warn("Failed to read image counts", e);
+            return null;
+        }
+    }
+
+    // One replica per interval recounts from a GROUP BY over every partition, read on the primary: a lagging
+    // replica would hand back stale totals. Deltas applied meanwhile are journaled and added to the result.
+    @Scheduled(fixedDelayString = "${inference.counts.reconcile-interval:PT15M}",
+            initialDelayString = "${inference.counts.reconcile-initial-delay:PT10S}")
+    public void reconcile() {
+        try {
+            Duration lockTtl = reconcileInterval.dividedBy(2);
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(RECONCILE_LOCK_KEY, nodeId, lockTtl);
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+
+            // Opened before the query, so no delta committed after its snapshot is missed
+            String token = nodeId + ":" + System.nanoTime();
+            redisTemplate.delete(JOURNAL_KEY);
+            redisTemplate.opsForHash().put(JOURNAL_KEY, JOURNAL_TOKEN, token);
+            redisTemplate.expire(JOURNAL_KEY, lockTtl);
+
+            Map<ImageStatus, Long> counts = new EnumMap<>(ImageStatus.class);
+            for (ImageStatus status : ImageStatus.values()) {
+                counts.put(status, 0L);
+            }
+            for (StatusCount count : ReplicaRoutingDataSource.onPrimary(imageRepository::countGroupedByStatus)) {
+                counts.put(count.getStatus(), count.getCount());
+            }
+
+            List<String> args = new ArrayList<>(1 + 2 * counts.size());
+            args.add(token);
+            counts.forEach((status, count) -> {
+                args.add(status.name());
+                args.add(String.valueOf(count));
+            });
+            Long adjusted = redisTemplate.execute(RECONCILE, List.of(COUNTS_KEY, JOURNAL_KEY), args.toArray());
+            if (adjusted == null) {
+                log.warn("Image count reconcile outlasted its journal, leaving counts for the next pass");
+            } else if (adjusted > 0) {
+                log.info("Reconciled image counts, corrected drift of {}", adjusted);
+            }
+
+        } catch (Exception e) {
+            log.warn("Failed to reconcile image counts", e);
+        }
+    }
+
+    private void increment(Map<ImageStatus, Long> deltas) {
+        try {
+            List<String> args = new ArrayList<>(2 * deltas.size());
+            deltas.forEach((status, delta) -> {
+                args.add(status.name());
+                args.add(String.valueOf(delta));
+            });
+            redisTemplate.execute(INCREMENT, List.of(COUNTS_KEY, JOURNAL_KEY), args.toArray());
+
+        } catch (Exception e) {
+            // The next reconcile repairs the drift
+            log.warn("Failed to update image counts {}", deltas, e);
+        }
+    }
+}
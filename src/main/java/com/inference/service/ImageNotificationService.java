@@ -0,0 +1,108 @@
+package com.inference.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+// Wakes long-poll subscribers when an image changes state on any replica
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImageNotificationService {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MetricsService metricsService;
+
+    // Messages are "<originNodeId>|<id,id,...>"
+    private static final String STATE_CHANGE_CHANNEL = "image-state-changes";
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // Idle subscribers are just futures here; no thread is held while they wait
+    private final ConcurrentMap<Long, Set<CompletableFuture<Long>>> waiters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        listenerContainer.addMessageListener(this::onStateChange, new ChannelTopic(STATE_CHANGE_CHANNEL));
+        metricsService.monitorSubscriptions(waiters);
+    }
+
+    // Completes with the image id the next time that image changes state
+    public CompletableFuture<Long> subscribe(Long imageId) {
+        CompletableFuture<Long> change = new CompletableFuture<>();
+        waiters.compute(imageId, (id, subscribers) -> {
+            Set<CompletableFuture<Long>> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            set.add(change);
+            return set;
+        });
+        return change;
+    }
+
+    public void unsubscribe(Long imageId, CompletableFuture<Long> change) {
+        waiters.computeIfPresent(imageId, (id, subscribers) -> {
+            subscribers.remove(change);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    // Wakes local subscribers directly and fans the change out to the other replicas
+    public void publishStateChanges(Collection<Long> imageIds) {
+        if (imageIds.isEmpty()) {
+            return;
+        }
+
+        imageIds.forEach(this::notifyLocal);
+
+        try {
+            String ids = imageIds.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            redisTemplate.convertAndSend(STATE_CHANGE_CHANNEL, nodeId + "|" + ids);
+
+        } catch (Exception e) {
+            log.warn("Failed to publish state change for {} images", imageIds.size(), e);
+        }
+    }
+
+    private void notifyLocal(Long imageId) {
+        Set<CompletableFuture<Long>> subscribers = waiters.remove(imageId);
+        if (subscribers == null) {
+            return;
+        }
+
+        for (CompletableFuture<Long> subscriber : subscribers) {
+            subscriber.complete(imageId);
+        }
+        metricsService.recordSubscribersNotified(subscribers.size());
+    }
+
+    private void onStateChange(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int separator = body.indexOf('|');
+        if (separator < 0 || body.startsWith(nodeId)) {
+            return;
+        }
+
+        for (String id : body.substring(separator + 1).split(",")) {
+            try {
+                notifyLocal(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                log.warn("Ignoring malformed state change: {}", body);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.inference.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+// Keeps the monthly partitions of images (see V3__partition_images.sql) ahead of the clock and retires
+// whole partitions once they age out, so old rows leave with a DETACH instead of row-by-row DELETEs.
+// One replica at a time, through the same Redis lock pattern as ImageCountService.reconcile.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ImagePartitionMaintenance {
+
+    public enum RetentionMode {
+        // COPY the partition to <archive-dir>/<partition>.csv.gz, then drop it
+        ARCHIVE,
+        DROP,
+        // Leave it as a standalone table for someone to deal with
+        DETACH
+    }
+
+    private static final String LOCK_KEY = "images:partitions:lock";
+    private static final String PARTITION_PREFIX = "images_p";
+    // V7__images_default_partition.sql
+    private static final String DEFAULT_PARTITION = "images_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    // Upper bound out of pg_get_expr(relpartbound): FOR VALUES FROM (...) TO ('2026-11-01 00:00:00')
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^'.]+)(\\.\\d+)?'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsService metricsService;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Value("${inference.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inference.partitions.interval:PT6H}")
+    private Duration interval;
+
+    @Value("${inference.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${inference.partitions.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${inference.partitions.retention-mode:archive}")
+    private RetentionMode retentionMode;
+
+    @Value("${inference.partitions.archive-dir:./archive/images}")
+    private Path archiveDir;
+
+    private record Partition(String name, LocalDateTime upperBound, boolean detachPending) {
+    }
+
+    @Scheduled(fixedDelayString = "${inference.partitions.interval:PT6H}",
+            initialDelayString = "${inference.partitions.initial-delay:PT0S}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Boolean acquired = redisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_KEY, nodeId, interval.dividedBy(2));
+            if (!Boolean.TRUE.equals(acquired)) {
+                return;
+            }
+
+            // From the database clock in the session's time zone, as V3 sized images_legacy and as created_at is stored,
+            // rather than this JVM's clock and zone
+            LocalDateTime thisMonth = jdbcTemplate.queryForObject("SELECT date_trunc('month', LOCALTIMESTAMP)", LocalDateTime.class);
+            createPartitions(thisMonth, thisMonth.plusMonths(monthsAhead + 1L));
+            retirePartitions(thisMonth.minusMonths(retentionMonths));
+
+        } catch (Exception e) {
+            log.error("Image partition maintenance failed", e);
+        }
+    }
+
+    // Monthly partitions from the newest existing upper bound up to the horizon; contiguous, so none is skipped
+    private void createPartitions(LocalDateTime thisMonth, LocalDateTime until) {
+        LocalDateTime start = partitions().stream()
+                .map(Partition::upperBound)
+                .max(Comparator.naturalOrder())
+                .orElse(thisMonth);
+
+        while (start.isBefore(until)) {
+            LocalDateTime end = start.plusMonths(1);
+            createPartition(PARTITION_PREFIX + PARTITION_SUFFIX.format(start), start, end);
+            start = end;
+        }
+    }
+
+    // Postgres refuses a partition overlapping rows the default partition holds, so rows that landed there while
+    // this month had no partition move into the new one, with the default detached for the move
+    private void createPartition(String name, LocalDateTime start, LocalDateTime end) {
+        String bounds = "FOR VALUES FROM ('" + BOUND_FORMAT.format(start) + "') TO ('" + BOUND_FORMAT.format(end) + "')";
+        String inRange = " WHERE created_at >= ? AND created_at < ?";
+        Long stranded = jdbcTemplate.queryForObject("SELECT count(*) FROM " + DEFAULT_PARTITION + inRange, Long.class, start, end);
+
+        if (stranded == null || stranded == 0) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF images " + bounds);
+            log.info("Created image partition {} for [{}, {})", name, start, end);
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE images DETACH PARTITION " + DEFAULT_PARTITION);
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF images " + bounds);
+            jdbcTemplate.update("INSERT INTO images SELECT * FROM " + DEFAULT_PARTITION + inRange, start, end);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + inRange, start, end);
+            jdbcTemplate.execute("ALTER TABLE images ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+        });
+        metricsService.recordDefaultPartitionRows(stranded);
+        log.warn("Created image partition {} for [{}, {}) late; moved {} rows out of {}",
+                name, start, end, stranded, DEFAULT_PARTITION);
+    }
+
+    // Partitions whose every row is older than the cutoff
+    private void retirePartitions(LocalDateTime cutoff) throws IOException, SQLException {
+        for (Partition partition : partitions()) {
+            if (partition.upperBound().isAfter(cutoff)) {
+                continue;
+            }
+
+            if (retentionMode == RetentionMode.ARCHIVE) {
+                archive(partition.name());
+            }
+
+            // CONCURRENTLY keeps readers and writers of images unblocked; a detach interrupted
+            // half way is left pending and has to be finalized instead
+            jdbcTemplate.execute("ALTER TABLE images DETACH PARTITION " + partition.name()
+                    + (partition.detachPending() ? " FINALIZE" : " CONCURRENTLY"));
+
+            if (retentionMode != RetentionMode.DETACH) {
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+            }
+            metricsService.recordPartitionRetired();
+            log.info("Retired image partition {} (up to {}) with mode {}", partition.name(), partition.upperBound(), retentionMode);
+        }
+    }
+
+    // Streams the partition out with COPY; the file only appears under its final name once complete
+    private void archive(String partition) throws IOException, SQLException {
+        Files.createDirectories(archiveDir);
+        Path file = archiveDir.resolve(partition + ".csv.gz");
+        Path partial = archiveDir.resolve(partition + ".csv.gz.partial");
+
+        long rows;
+        try (Connection connection = dataSource.getConnection();
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), 65536)) {
+            rows = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+        }
+
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Archived {} rows of {} to {}", rows, partition, file);
+    }
+
+    private List<Partition> partitions() {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid), i.inhdetachpending " +
+                        "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'images'::regclass AND c.relname <> '" + DEFAULT_PARTITION + "'",
+                (rs, rowNum) -> new Partition(rs.getString(1), upperBound(rs.getString(2)), rs.getBoolean(3)));
+    }
+
+    private static LocalDateTime upperBound(String bound) {
+        Matcher matcher = UPPER_BOUND.matcher(bound);
+        if (!matcher.find()) {
+            throw new IllegalStateException("Unexpected partition bound: " + bound);
+        }
+        return LocalDateTime.parse(matcher.group(1), BOUND_FORMAT);
+    }
+}
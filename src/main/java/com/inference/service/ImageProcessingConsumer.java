@@ -1,11 +1,32 @@
 package com.inference.service;
 
+import com.inference.messaging.ClassificationResult;
+import com.inference.messaging.ImageMessageCodec;
+import com.inference.messaging.ProcessingError;
 import com.inference.repository.ImageRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.TopicSuffixingStrategy;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+// Listener concurrency comes from spring.kafka.listener.concurrency. Offsets are committed when a
+// listener method returns, i.e. only after the DB writes for that poll are done.
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -14,51 +35,144 @@ public class ImageProcessingConsumer {
     private final ImageRepository imageRepository;
     private final ImageService imageService;
     private final MetricsService metricsService;
+    private final StripedExecutor stripedExecutor;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
 
-    // Listens for classification results from inference worker
-    @KafkaListener(topics = "image-classification-results", groupId = "image-service-group")
-    public void consumeClassificationResult(String message) {
-        try {
-            log.info("Received classification result: {}", message);
+    public static final String RESULTS_TOPIC = "image-classification-results";
+
+    // Results that failed in the main listener; retried with backoff on their own delay topics
+    // (-1000, -4000, ... by default) so the main partitions keep moving
+    public static final String RESULTS_RETRY_TOPIC = "image-classification-results-retry";
+    public static final String RESULTS_DLQ_TOPIC = RESULTS_RETRY_TOPIC + "-dlq";
+
+    @Value("${inference.retry.send-timeout:10s}")
+    private Duration retrySendTimeout;
 
-            // Message format: "imageId:result:confidence"
-            String[] parts = message.split(":");
-            if (parts.length >= 3) {
-                Long imageId = Long.parseLong(parts[0]);
-                String result = parts[1];
-                Double confidence = Double.parseDouble(parts[2]);
+    // Listens for classification results from inference worker, one poll at a time
+    @KafkaListener(topics = RESULTS_TOPIC, groupId = "image-service-group",
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void consumeClassificationResults(List<byte[]> messages, Consumer<?, ?> consumer) {
+        long startTime = System.nanoTime();
+        log.info("Received {} classification results", messages.size());
 
-                imageService.updateImageResult(imageId, result, confidence);
-                metricsService.recordSuccessfulProcessing();
+        List<ClassificationResult> results = new ArrayList<>(messages.size());
+        for (byte[] message : messages) {
+            try {
+                results.add(ImageMessageCodec.decodeResult(message));
 
+            } catch (IllegalArgumentException e) {
+                // Retrying cannot fix a malformed payload; park it for inspection
+                log.warn("Invalid classification result ({} bytes): {}", message.length, e.getMessage());
+                metricsService.recordFailedProcessing();
+                forward(RESULTS_DLQ_TOPIC, null, message);
+            }
+        }
+
+        if (!results.isEmpty()) {
+            if (stripedExecutor.isEnabled()) {
+                // Results for one image id always land on the same stripe, in poll order
+                stripedExecutor.execute(results, ClassificationResult::getImageId, this::applyResults);
             } else {
-                log.warn("Invalid message format: {}", message);
+                applyResults(results);
             }
+        }
+
+        metricsService.recordListenerLatency("classification-results", System.nanoTime() - startTime);
+        recordLag(consumer);
+    }
+
+    private void applyResults(List<ClassificationResult> results) {
+        try {
+            long startTime = System.nanoTime();
+            imageService.updateImageResults(results);
+            metricsService.recordDbWrite("results", System.nanoTime() - startTime);
+
+        } catch (Exception e) {
+            // Fall back to one transaction per record so a single bad row does not replay the whole poll
+            log.warn("Batch update of {} results failed, applying individually", results.size(), e);
+            for (ClassificationResult result : results) {
+                applySingleResult(result);
+            }
+        }
+    }
+
+    private void applySingleResult(ClassificationResult result) {
+        try {
+            imageService.updateImageResult(result.getImageId(), result.getLabel(), result.getConfidence());
 
         } catch (Exception e) {
-            log.error("Error processing classification result", e);
-            metricsService.recordFailedProcessing();
+            log.warn("Error processing classification result for image {}, scheduling retry", result.getImageId(), e);
+            metricsService.recordResultRetryScheduled();
+            forward(RESULTS_RETRY_TOPIC, String.valueOf(result.getImageId()), ImageMessageCodec.encodeResult(result));
         }
     }
 
+    // Synchronous, so a failed hand-off fails the poll and it is redelivered rather than lost
+    private void forward(String topic, String key, byte[] payload) {
+        try {
+            kafkaTemplate.send(topic, key, payload).get(retrySendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while forwarding to " + topic, e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to forward message to " + topic, e);
+        }
+    }
+
+    // Non-blocking retries: each failed attempt moves the record to the next delay topic, the last one to the DLQ
+    @RetryableTopic(
+            attempts = "${inference.retry.attempts:4}",
+            backoff = @Backoff(delayExpression = "${inference.retry.initial-delay:1000}",
+                    multiplierExpression = "${inference.retry.multiplier:4}",
+                    maxDelayExpression = "${inference.retry.max-delay:60000}"),
+            numPartitions = "${inference.kafka.partitions:12}",
+            replicationFactor = "1",
+            retryTopicSuffix = "",
+            dltTopicSuffix = "-dlq",
+            topicSuffixingStrategy = TopicSuffixingStrategy.SUFFIX_WITH_DELAY_VALUE,
+            exclude = IllegalArgumentException.class)
+    @KafkaListener(topics = RESULTS_RETRY_TOPIC, groupId = "image-service-group")
+    public void consumeRetriedResult(byte[] message) {
+        ClassificationResult result = ImageMessageCodec.decodeResult(message);
+        log.info("Retrying classification result for image {}", result.getImageId());
+
+        // Throws on failure, which hands the record to the next delay topic
+        imageService.updateImageResult(result.getImageId(), result.getLabel(), result.getConfidence());
+    }
+
+    @DltHandler
+    public void handleDeadLetteredResult(byte[] message,
+                                         @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) {
+        log.error("Classification result ({} bytes) exhausted retries and was parked on {}", message.length, topic);
+        metricsService.recordResultDeadLettered();
+    }
+
     // Listens for processing errors
     @KafkaListener(topics = "image-processing-errors", groupId = "image-service-group")
-    public void consumeProcessingError(String message) {
+    public void consumeProcessingError(byte[] message, Consumer<?, ?> consumer) {
+        long startTime = System.nanoTime();
         try {
-            log.warn("Received processing error: {}", message);
+            ProcessingError error = ImageMessageCodec.decodeError(message);
+            log.warn("Received processing error for image {} (code {}): {}",
+                    error.getImageId(), error.getErrorCode(), error.getMessage());
 
-            // Message format: "imageId:errorMessage"
-            String[] parts = message.split(":", 2);
-            if (parts.length >= 2) {
-                Long imageId = Long.parseLong(parts[0]);
-                String errorMessage = parts[1];
-
-                imageService.markImageFailed(imageId, errorMessage);
-            }
+            imageService.markImageFailed(error.getImageId(), error.getMessage());
 
         } catch (Exception e) {
             log.error("Error processing error message", e);
         }
+
+        metricsService.recordListenerLatency("processing-errors", System.nanoTime() - startTime);
+        recordLag(consumer);
+    }
+
+    // Uses the consumer's cached fetch positions; no broker round trip
+    private void recordLag(Consumer<?, ?> consumer) {
+        for (TopicPartition partition : consumer.assignment()) {
+            consumer.currentLag(partition).ifPresent(lag ->
+                    metricsService.recordPartitionLag(partition.topic(), partition.partition(), lag));
+        }
     }
 
-}
\ No newline at end of file
+}
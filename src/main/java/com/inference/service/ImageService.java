@@ -1,29 +1,115 @@
 package com.inference.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inference.config.ReplicaRoutingDataSource;
+import com.inference.exception.RateLimitedException;
+import com.inference.exception.ServiceBusyException;
+import com.inference.messaging.ClassificationResult;
+import com.inference.messaging.ImageMessageCodec;
 import com.inference.model.ImageEntity;
 import com.inference.model.ImageStatus;
+import com.inference.model.OutboxEvent;
 import com.inference.repository.ImageRepository;
+import com.inference.repository.ImageSummary;
+import com.inference.repository.OutboxRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.annotation.Backoff;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ImageService {
     private final ImageRepository imageRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxRepository outboxRepository;
+    private final OutboxRelay outboxRelay;
+    private final TransactionTemplate transactionTemplate;
     private final CacheService cacheService;
+    private final ImageNotificationService imageNotificationService;
     private final MetricsService metricsService;
+    private final ContentDedupService contentDedupService;
+    private final ImageCountService imageCountService;
+    private final ReplicaRoutingDataSource replicaRouting;
+    private final ClassificationStatsService classificationStatsService;
 
     private static final String KAFKA_TOPIC = "image-processing-topic";
 
+    private final ConcurrentMap<Long, CompletableFuture<Optional<ImageEntity>>> inFlightLoads = new ConcurrentHashMap<>();
+
+    @Value("${inference.api.bulk-upload.batch-size:100}")
+    private int bulkBatchSize;
+
+    @Value("${inference.api.bulk-upload.max-files:1000}")
+    private int maxBulkFiles;
+
+    @Value("${inference.api.bulk-upload.max-file-size:10MB}")
+    private DataSize maxBulkFileSize;
+
+    @Value("${inference.messaging.outbound-format:binary}")
+    private String outboundFormat;
+
+    @Value("${inference.results.dedup.max-entries:100000}")
+    private long dedupMaxEntries;
+
+    @Value("${inference.results.dedup.ttl:10m}")
+    private Duration dedupTtl;
+
+    // Image ids this node has recently seen reach a terminal state; Kafka redeliveries of their results
+    // are dropped before any DB work. Per node only; the status check in updateImageResults covers the rest.
+    private Cache<Long, Boolean> recentlyCompleted;
+
+    // Listing streams hold a connection for the whole response, so they run read-only
+    private TransactionTemplate readOnlyTransactionTemplate;
+
+    @PostConstruct
+    void initDedupWindow() {
+        recentlyCompleted = Caffeine.newBuilder()
+                .maximumSize(dedupMaxEntries)
+                .expireAfterWrite(dedupTtl)
+                .build();
+
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    // The image row and its outbox event commit together; OutboxRelay publishes to Kafka afterwards
+    @Transactional
     public ImageEntity uploadImage(MultipartFile file) throws Exception {
-        long startTime = System.currentTimeMillis();
+        long startTime = System.nanoTime();
 
         log.info("Starting image upload: {}", file.getOriginalFilename());
 
@@ -32,6 +118,14 @@ public class ImageService {
             throw new IllegalArgumentException("File cannot be empty");
         }
 
+        // Reject before writing anything if the relay to Kafka is falling behind
+        outboxRelay.checkBacklog();
+
+        MessageDigest digest = ContentDedupService.newDigest();
+        try (InputStream content = file.getInputStream()) {
+            measure(content, new byte[8192], Long.MAX_VALUE, digest);
+        }
+
         // Generate unique S3 key
         String s3Key = generateS3Key(file.getOriginalFilename());
         String imageUrl = "https://cdn.example.com/" + s3Key;
@@ -40,103 +134,540 @@ public class ImageService {
         ImageEntity image = ImageEntity.builder()
                 .imageUrl(imageUrl)
                 .s3Key(s3Key)
+                .contentHash(ContentDedupService.toHex(digest))
                 .status(ImageStatus.PENDING)
                 .build();
 
+        // Same bytes seen before: either completed right away or attached to the copy already in flight
+        boolean needsInference = !contentDedupService.resolve(List.of(image)).isEmpty();
+
         ImageEntity savedImage = imageRepository.save(image);
         log.info("Image saved with ID: {}", savedImage.getId());
+        countCreated(List.of(savedImage));
 
-        // Send to Kafka for processing
-        sendToKafkaForProcessing(savedImage.getId(), s3Key);
+        // Queue for processing in the same transaction
+        if (needsInference) {
+            outboxRepository.save(processingEvent(savedImage));
+        } else if (savedImage.getStatus() == ImageStatus.COMPLETED) {
+            completedAfterCommit(List.of(savedImage));
+        }
 
         metricsService.recordImageUpload();
 
-        long duration = System.currentTimeMillis() - startTime;
-        log.info("Image upload completed in {}ms", duration);
+        // Measured once the commit is through, since that is when the client gets its answer
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                long duration = System.nanoTime() - startTime;
+                metricsService.recordUploadDuration(false, duration);
+                log.info("Image upload completed in {}ms", TimeUnit.NANOSECONDS.toMillis(duration));
+            }
+        });
 
         return savedImage;
     }
 
-//    @Retry(maxAttempts = 3, backoff = @Backoff(delay = 1000))
-    private void sendToKafkaForProcessing(Long imageId, String s3Key) {
+    // Handles entries as the source yields them; rows are inserted and published every bulkBatchSize entries
+    public List<BulkUploadItem> uploadImages(UploadEntrySource source) {
+        long startTime = System.nanoTime();
+
+        List<BulkUploadItem> items = new ArrayList<>();
+        List<ImageEntity> pendingImages = new ArrayList<>(bulkBatchSize);
+        List<BulkUploadItem> pendingItems = new ArrayList<>(bulkBatchSize);
+        byte[] buffer = new byte[8192];
+        MessageDigest digest = ContentDedupService.newDigest();
+
         try {
-            String message = imageId + ":" + s3Key;
-            kafkaTemplate.send(KAFKA_TOPIC, imageId.toString(), message);
-            log.info("Sent to Kafka - ImageID: {}, S3Key: {}", imageId, s3Key);
+            UploadEntry entry;
+            while ((entry = source.next()) != null) {
+                BulkUploadItem item = BulkUploadItem.builder()
+                        .fileName(entry.getFileName())
+                        .build();
+                items.add(item);
+
+                if (items.size() > maxBulkFiles) {
+                    item.setError("Too many files, at most " + maxBulkFiles + " per request");
+                    break;
+                }
+
+                // Like uploadImage, content is only validated here; the worker fetches it by s3 key
+                long size = measure(entry.getContent(), buffer, maxBulkFileSize.toBytes(), digest);
+                if (size == 0) {
+                    item.setError("File cannot be empty");
+                    continue;
+                }
+                if (size < 0) {
+                    item.setError("File exceeds " + maxBulkFileSize);
+                    continue;
+                }
+
+                String s3Key = generateS3Key(entry.getFileName());
+                pendingImages.add(ImageEntity.builder()
+                        .imageUrl("https://cdn.example.com/" + s3Key)
+                        .s3Key(s3Key)
+                        .contentHash(ContentDedupService.toHex(digest))
+                        .status(ImageStatus.PENDING)
+                        .build());
+                pendingItems.add(item);
+
+                if (pendingImages.size() >= bulkBatchSize) {
+                    flushBulkChunk(pendingImages, pendingItems);
+                }
+            }
+
+        } catch (IOException e) {
+            // Keep what was already accepted; the client still needs those ids
+            log.warn("Bulk upload stream ended unexpectedly after {} files", items.size(), e);
+            items.add(BulkUploadItem.builder()
+                    .error("Upload stream ended unexpectedly: " + e.getMessage())
+                    .build());
+
+        } catch (RateLimitedException e) {
+            // The source meters entries against the client's rate limit; the rest of the body is not read
+            items.add(BulkUploadItem.builder()
+                    .error("Rate limit reached, the remaining files were not read; retry them after "
+                            + e.getRetryAfterSeconds() + "s")
+                    .build());
+
+        } finally {
+            flushBulkChunk(pendingImages, pendingItems);
+        }
+
+        long duration = System.nanoTime() - startTime;
+        metricsService.recordUploadDuration(true, duration);
+        log.info("Bulk upload of {} files completed in {}ms", items.size(), TimeUnit.NANOSECONDS.toMillis(duration));
+        return items;
+    }
+
+    // Images and their outbox events for one chunk commit in a single transaction
+    private void flushBulkChunk(List<ImageEntity> images, List<BulkUploadItem> items) {
+        if (images.isEmpty()) {
+            return;
+        }
+
+        try {
+            outboxRelay.checkBacklog();
+
+            long startTime = System.nanoTime();
+            List<ImageEntity> saved = transactionTemplate.execute(status -> {
+                List<ImageEntity> toProcess = contentDedupService.resolve(images);
+                List<ImageEntity> rows = imageRepository.saveAll(images);
+
+                // saveAll persists the given instances, so toProcess now carries generated ids
+                outboxRepository.saveAll(toProcess.stream()
+                        .map(this::processingEvent)
+                        .toList());
+                completedAfterCommit(rows.stream()
+                        .filter(image -> image.getStatus() == ImageStatus.COMPLETED)
+                        .toList());
+                countCreated(rows);
+                return rows;
+            });
+            metricsService.recordDbWrite("bulk-upload", System.nanoTime() - startTime);
+
+            for (int i = 0; i < saved.size(); i++) {
+                ImageEntity image = saved.get(i);
+                BulkUploadItem item = items.get(i);
+                item.setId(image.getId());
+                item.setStatus(image.getStatus().toString());
+                metricsService.recordImageUpload();
+            }
+
+        } catch (ServiceBusyException e) {
+            items.forEach(item -> item.setError(e.getMessage()));
         } catch (Exception e) {
-            log.error("Error sending to Kafka", e);
-            throw e;
+            log.error("Error saving bulk upload chunk of {} images", images.size(), e);
+            items.forEach(item -> item.setError("Failed to save image"));
+        }
+
+        images.clear();
+        items.clear();
+    }
+
+    // Reads the stream to its end without keeping it, feeding the digest as it goes; returns -1 once maxBytes is exceeded
+    private long measure(InputStream content, byte[] buffer, long maxBytes, MessageDigest digest) throws IOException {
+        digest.reset();
+        long total = 0;
+        int read;
+        while ((read = content.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            total += read;
+            if (total > maxBytes) {
+                return -1;
+            }
         }
+        return total;
+    }
+
+    private void countCreated(List<ImageEntity> images) {
+        Map<ImageStatus, Long> counts = ImageCountService.newDeltas();
+        images.forEach(image -> counts.merge(image.getStatus(), 1L, Long::sum));
+        imageCountService.apply(counts);
+    }
+
+    // Images that completed without inference (content dedup hits) are cached once the insert commits, and
+    // counted in the stats like followers that complete later, so the stats cover every COMPLETED image
+    private void completedAfterCommit(List<ImageEntity> images) {
+        if (images.isEmpty()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cacheService.cacheResults(images);
+                classificationStatsService.record(images);
+            }
+        });
+    }
+
+    // Keyed by image id; see ImageMessageCodec for the payload layout
+    OutboxEvent processingEvent(ImageEntity image) {
+        byte[] payload = "legacy".equalsIgnoreCase(outboundFormat)
+                ? ImageMessageCodec.encodeLegacyProcessingRequest(image.getId(), image.getS3Key())
+                : ImageMessageCodec.encodeProcessingRequest(image.getId(), image.getS3Key(), image.getAttempts());
+
+        return OutboxEvent.builder()
+                .topic(KAFKA_TOPIC)
+                .messageKey(image.getId().toString())
+                .payload(payload)
+                .build();
     }
 
     public ImageEntity getImage(Long id) {
         log.debug("Fetching image with ID: {}", id);
 
         return imageRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.error("Image not found: {}", id);
-                    return new RuntimeException("Image not found with ID: " + id);
-                });
+                .orElseThrow(() -> imageNotFound(id));
     }
 
     public ImageEntity getImageWithCache(Long id) {
-        // Try cache first
-        String cached = cacheService.getFromCache(id);
-        if (cached != null) {
+        // Try cache first; terminal states and known-missing ids are answered without touching the DB
+        CacheLookup cached = cacheService.getCachedImage(id);
+        if (cached.isHit()) {
             log.debug("Cache hit for image {}", id);
             metricsService.recordCacheHit();
-            // Parse cached JSON and return
-            return getImage(id);
+            if (cached.isNotFound()) {
+                throw imageNotFound(id);
+            }
+            return cached.getImage();
         }
 
-        // Cache miss - fetch from DB
+        // Cache miss - fetch from DB, at most one load per id at a time
         metricsService.recordCacheMiss();
-        ImageEntity image = getImage(id);
+        return loadOnce(id).orElseThrow(() -> imageNotFound(id));
+    }
+
+    // Single-flight: concurrent misses on the same id wait for the first caller's query
+    private Optional<ImageEntity> loadOnce(Long id) {
+        CompletableFuture<Optional<ImageEntity>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<ImageEntity>> inFlight = inFlightLoads.putIfAbsent(id, load);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                // Rethrow what the first caller got, so every waiter maps to the same HTTP error
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                if (e.getCause() instanceof Error cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
 
-        // Cache for future requests
-        if (image.getStatus() == ImageStatus.COMPLETED) {
-            cacheService.cacheResult(id, image);
+        try {
+            Optional<ImageEntity> image = imageRepository.findById(id);
+            if (image.isEmpty() && replicaRouting.hasReplicas()) {
+                // A replica may not have the row yet (polled right after upload); the primary decides before NOT_FOUND is cached
+                metricsService.recordReplicaFallback();
+                image = ReplicaRoutingDataSource.onPrimary(() -> imageRepository.findById(id));
+            }
+
+            // Cache for future requests before releasing waiters, so later callers hit the cache. A read changes
+            // nothing, so this must not broadcast an invalidation to the other replicas' near caches.
+            if (image.isEmpty()) {
+                cacheService.backfill(List.of(), List.of(id));
+            } else if (image.get().getStatus().isTerminal()) {
+                cacheService.backfill(List.of(image.get()), List.of());
+            }
+
+            load.complete(image);
+            return image;
+
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+
+        } finally {
+            inFlightLoads.remove(id, load);
         }
+    }
 
-        return image;
+    // Emits every requested id exactly once: cache hits first, then one findAllById for the rest.
+    // A null image means the id does not exist.
+    public void getImagesWithCache(Collection<Long> ids, BiConsumer<Long, ImageEntity> sink) {
+        Set<Long> misses = new HashSet<>(ids);
+        cacheService.getCachedImages(misses).forEach((id, cached) -> {
+            metricsService.recordCacheHit();
+            misses.remove(id);
+            sink.accept(id, cached.getImage());
+        });
+
+        if (misses.isEmpty()) {
+            return;
+        }
+
+        misses.forEach(id -> metricsService.recordCacheMiss());
+        List<ImageEntity> images = imageRepository.findAllById(misses);
+
+        List<ImageEntity> terminal = new ArrayList<>(images.size());
+        for (ImageEntity image : images) {
+            misses.remove(image.getId());
+            if (image.getStatus().isTerminal()) {
+                terminal.add(image);
+            }
+            sink.accept(image.getId(), image);
+        }
+
+        // Same read-your-writes fallback as loadOnce, for the ids the replica did not have
+        if (!misses.isEmpty() && replicaRouting.hasReplicas()) {
+            metricsService.recordReplicaFallback();
+            for (ImageEntity image : ReplicaRoutingDataSource.onPrimary(() -> imageRepository.findAllById(misses))) {
+                misses.remove(image.getId());
+                if (image.getStatus().isTerminal()) {
+                    terminal.add(image);
+                }
+                sink.accept(image.getId(), image);
+            }
+        }
+        misses.forEach(id -> sink.accept(id, null));
+
+        cacheService.backfill(terminal, misses);
+    }
+
+    // One keyset page, newest first, strictly before (beforeCreatedAt, beforeId); status may be null for all.
+    // Rows are handed to the sink as they are read from the cursor, never collected.
+    public void listImages(ImageStatus status, LocalDateTime from, LocalDateTime beforeCreatedAt, long beforeId,
+                           int limit, Consumer<ImageSummary> sink) {
+        PageRequest page = PageRequest.of(0, limit);
+        readOnlyTransactionTemplate.executeWithoutResult(tx -> {
+            try (Stream<ImageSummary> rows = status != null
+                    ? imageRepository.streamPageByStatus(status, from, beforeCreatedAt, beforeId, page)
+                    : imageRepository.streamPage(from, beforeCreatedAt, beforeId, page)) {
+                rows.forEach(sink);
+            }
+        });
+    }
+
+    // Maintained count, not a table scan; null while unknown
+    public Long countImages(ImageStatus status) {
+        return status != null ? imageCountService.getCount(status) : imageCountService.getTotalCount();
+    }
+
+    private RuntimeException imageNotFound(Long id) {
+        log.error("Image not found: {}", id);
+        return new RuntimeException("Image not found with ID: " + id);
     }
 
+    // Same rules as the batch path: duplicates and results for already-finished images are dropped
     public void updateImageResult(Long id, String result, Double confidence) {
         log.info("Updating image {} with classification result", id);
 
-        ImageEntity image = getImage(id);
-        image.setStatus(ImageStatus.COMPLETED);
-        image.setClassificationResult(result);
-        image.setConfidenceScore(confidence);
+        transactionTemplate.execute(status -> updateImageResults(List.of(ClassificationResult.builder()
+                .imageId(id)
+                .label(result)
+                .confidence(confidence)
+                .build())));
+    }
+
+    // Applies a whole poll of results with one SELECT ... IN, one batched UPDATE flush and one Redis pipeline.
+    // Redelivered results are idempotent: recent duplicates never reach Postgres, images already in a terminal
+    // state are left alone, and the version column turns a concurrent write into a rollback instead of an overwrite.
+    @Transactional
+    public List<ImageEntity> updateImageResults(List<ClassificationResult> results) {
+        log.info("Updating {} images with classification results", results.size());
+
+        Set<Long> ids = new HashSet<>(results.size());
+        for (ClassificationResult result : results) {
+            if (recentlyCompleted.getIfPresent(result.getImageId()) != null) {
+                metricsService.recordDuplicateResultSuppressed();
+            } else {
+                ids.add(result.getImageId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, ImageEntity> images = imageRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(ImageEntity::getId, Function.identity()));
 
-        ImageEntity updated = imageRepository.save(image);
+        List<ImageEntity> updated = new ArrayList<>(images.size());
+        List<Long> alreadyTerminal = new ArrayList<>();
+        List<Integer> inferenceTimes = new ArrayList<>(images.size());
+        Map<ImageStatus, Long> counts = ImageCountService.newDeltas();
+        LocalDateTime now = LocalDateTime.now();
+        for (ClassificationResult result : results) {
+            if (!ids.contains(result.getImageId())) {
+                continue;
+            }
 
-        // Cache the result
-        cacheService.cacheResult(id, updated);
+            ImageEntity image = images.get(result.getImageId());
+            if (image == null) {
+                log.error("Image not found: {}", result.getImageId());
+                metricsService.recordFailedProcessing();
+                continue;
+            }
+            if (image.getStatus().isTerminal()) {
+                // Redelivery, or a second copy within this poll; the stored outcome wins
+                log.debug("Ignoring result for image {} already in state {}", image.getId(), image.getStatus());
+                alreadyTerminal.add(image.getId());
+                metricsService.recordDuplicateResultSuppressed();
+                continue;
+            }
 
-        log.info("Image {} updated successfully", id);
-        metricsService.recordSuccessfulProcessing();
+            ImageCountService.move(counts, image.getStatus(), ImageStatus.COMPLETED);
+            image.setStatus(ImageStatus.COMPLETED);
+            image.setClassificationResult(result.getLabel());
+            image.setConfidenceScore(result.getConfidence());
+            stampProcessingTime(image, now);
+            if (result.getProcessingTimeMs() != ClassificationResult.UNKNOWN_PROCESSING_TIME) {
+                inferenceTimes.add(result.getProcessingTimeMs());
+            }
+            updated.add(image);
+        }
+        // Followers below complete without inference of their own, so they are not counted as processed
+        int processed = updated.size();
+
+        // Identical uploads that were coalesced onto these images complete with them
+        Map<String, ImageEntity> byHash = new HashMap<>();
+        updated.forEach(image -> {
+            if (image.getContentHash() != null) {
+                byHash.putIfAbsent(image.getContentHash(), image);
+            }
+        });
+        for (ImageEntity follower : contentDedupService.findFollowers(byHash.values())) {
+            ImageEntity source = byHash.get(follower.getContentHash());
+            ImageCountService.move(counts, follower.getStatus(), ImageStatus.COMPLETED);
+            ContentDedupService.inherit(follower, source);
+            stampProcessingTime(follower, now);
+            updated.add(follower);
+        }
+
+        imageCountService.apply(counts);
+
+        // Managed entities are flushed as one JDBC batch on commit; only cache and count what actually committed.
+        // A batch that rolls back is retried record by record, which would otherwise count its successes twice.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (int i = 0; i < processed; i++) {
+                    metricsService.recordSuccessfulProcessing();
+                }
+                inferenceTimes.forEach(metricsService::recordInferenceTime);
+                updated.forEach(image -> recentlyCompleted.put(image.getId(), Boolean.TRUE));
+                alreadyTerminal.forEach(id -> recentlyCompleted.put(id, Boolean.TRUE));
+                cacheService.cacheResults(updated);
+                imageNotificationService.publishStateChanges(updated.stream()
+                        .map(ImageEntity::getId)
+                        .toList());
+                recordProcessingTimes(updated);
+                classificationStatsService.record(updated);
+            }
+        });
+
+        log.info("Updated {} of {} images", updated.size(), results.size());
+        return updated;
     }
 
+    // Uploads coalesced onto this image share its inference, so they fail with it
     public void markImageFailed(Long id, String errorMessage) {
         log.error("Marking image {} as failed: {}", id, errorMessage);
 
-        ImageEntity image = getImage(id);
-        image.setStatus(ImageStatus.FAILED);
-        image.setErrorMessage(errorMessage);
+        long startTime = System.nanoTime();
+        List<ImageEntity> failed = transactionTemplate.execute(status -> {
+            ImageEntity image = getImage(id);
+            if (image.getStatus().isTerminal()) {
+                log.warn("Ignoring failure for image {} already in state {}", id, image.getStatus());
+                metricsService.recordDuplicateResultSuppressed();
+                return List.of();
+            }
 
-        imageRepository.save(image);
+            Map<ImageStatus, Long> counts = ImageCountService.newDeltas();
+            List<ImageEntity> rows = failWithFollowers(List.of(image), row -> errorMessage, counts, LocalDateTime.now());
+            imageCountService.apply(counts);
+            return rows;
+        });
+
+        metricsService.recordDbWrite("failure", System.nanoTime() - startTime);
+
+        if (failed.isEmpty()) {
+            return;
+        }
+        cacheService.cacheResults(failed);
+        imageNotificationService.publishStateChanges(failed.stream()
+                .map(ImageEntity::getId)
+                .toList());
+        recordProcessingTimes(failed);
+        classificationStatsService.record(failed);
         metricsService.recordFailedProcessing();
     }
 
+    // Fails the images and the uploads coalesced onto them, which take their error message, in the caller's
+    // transaction. Statuses change first: findFollowers flushes, and must no longer see the images as in flight.
+    List<ImageEntity> failWithFollowers(List<ImageEntity> images, Function<ImageEntity, String> errorMessage,
+                                        Map<ImageStatus, Long> counts, LocalDateTime now) {
+        List<ImageEntity> failed = new ArrayList<>(images);
+        Map<String, ImageEntity> byHash = new HashMap<>();
+        for (ImageEntity image : images) {
+            fail(image, errorMessage.apply(image), counts, now);
+            if (image.getContentHash() != null) {
+                byHash.putIfAbsent(image.getContentHash(), image);
+            }
+        }
+
+        for (ImageEntity follower : contentDedupService.findFollowers(byHash.values())) {
+            fail(follower, byHash.get(follower.getContentHash()).getErrorMessage(), counts, now);
+            failed.add(follower);
+        }
+        return failed;
+    }
+
+    private static void fail(ImageEntity image, String errorMessage, Map<ImageStatus, Long> counts, LocalDateTime now) {
+        ImageCountService.move(counts, image.getStatus(), ImageStatus.FAILED);
+        image.setStatus(ImageStatus.FAILED);
+        image.setErrorMessage(errorMessage);
+        stampProcessingTime(image, now);
+    }
+
     public void markImageProcessing(Long id) {
         ImageEntity image = getImage(id);
+        Map<ImageStatus, Long> counts = ImageCountService.newDeltas();
+        ImageCountService.move(counts, image.getStatus(), ImageStatus.PROCESSING);
         image.setStatus(ImageStatus.PROCESSING);
         imageRepository.save(image);
+        imageCountService.apply(counts);
         log.debug("Marked image {} as PROCESSING", id);
     }
 
-    private String generateS3Key(String originalFileName) {
+    // End to end, upload to terminal state; queueing, retries and reaper requeues all count
+    static void stampProcessingTime(ImageEntity image, LocalDateTime finishedAt) {
+        if (image.getCreatedAt() != null) {
+            image.setProcessingTimeMs(Math.max(0, Duration.between(image.getCreatedAt(), finishedAt).toMillis()));
+        }
+    }
+
+    void recordProcessingTimes(List<ImageEntity> images) {
+        for (ImageEntity image : images) {
+            if (image.getProcessingTimeMs() != null) {
+                metricsService.recordProcessingTime(image.getStatus(), image.getProcessingTimeMs());
+            }
+        }
+    }
+
+    static String generateS3Key(String originalFileName) {
         return "images/" + UUID.randomUUID() + "-" + originalFileName;
     }
 }
@@ -1,61 +1,371 @@
 package com.inference.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.inference.model.ImageStatus;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+// Every meter is registered once, here or on first use of a new tag value, and then reused; the record
+// methods sit on hot paths and only increment. Latency timers publish Prometheus histograms.
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class MetricsService {
 
     private final MeterRegistry meterRegistry;
 
+    private final Counter imagesUploaded;
+    private final Counter uploadsRejected;
+    private final Counter processedSuccess;
+    private final Counter processedFailed;
+    private final Counter duplicateResults;
+    private final Counter resultRetries;
+    private final Counter resultsDeadLettered;
+    private final Counter deadLettersReplayed;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter cacheKeysCleared;
+    private final Counter subscribersNotified;
+    private final Counter outboxRelayed;
+    private final Counter publishFailures;
+    private final Counter reaperRequeued;
+    private final Counter reaperFailed;
+    private final Counter partitionsRetired;
+    private final Counter defaultPartitionRows;
+    private final Counter readsToReplica;
+    private final Counter readsToPrimary;
+    private final Counter replicaFallbacks;
+
+    private final Timer uploadDuration;
+    private final Timer bulkUploadDuration;
+    private final Timer inferenceDuration;
+    private final Timer publishDuration;
+    private final Timer outboxBatchDuration;
+    private final Timer reaperBatchDuration;
+    private final Map<ImageStatus, Timer> processingDurations = new EnumMap<>(ImageStatus.class);
+
+    // Tag values not known up front; each entry is registered on first use
+    private final ConcurrentMap<String, Counter> dedupOutcomes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> cacheLookupDurations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> dbWriteDurations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Timer> listenerDurations = new ConcurrentHashMap<>();
+
+    // Keyed by "client|reason"; clients past the cap share the "other" tag to bound series
+    private final ConcurrentMap<String, Counter> uploadsThrottled = new ConcurrentHashMap<>();
+
+    @Value("${inference.rate-limit.max-client-tags:500}")
+    private int maxClientTags = 500;
+
+    // Keyed by "topic-partition"; each entry backs one registered gauge
+    private final ConcurrentMap<String, AtomicLong> partitionLags = new ConcurrentHashMap<>();
+
+    public MetricsService(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+
+        imagesUploaded = counter("images.uploaded", "Total images uploaded");
+        uploadsRejected = counter("images.upload.rejected", "Uploads rejected because the outbox relay is behind");
+        processedSuccess = counter("images.processed.success", "Successfully processed images");
+        processedFailed = counter("images.processed.failed", "Failed image processing");
+        duplicateResults = counter("images.results.duplicates",
+                "Results or failures dropped because the image had already reached a terminal state");
+        resultRetries = counter("images.results.retries",
+                "Classification results sent to the retry topics after failing in the main listener");
+        resultsDeadLettered = counter("images.results.dead_lettered", "Classification results that exhausted their retries");
+        deadLettersReplayed = counter("images.results.dlq.replayed", "Dead-lettered results re-published to the results topic");
+        cacheHits = counter("cache.hits", "Cache hits");
+        cacheMisses = counter("cache.misses", "Cache misses");
+        l1Hits = counter("cache.l1.hits", "In-process near cache hits");
+        l1Misses = counter("cache.l1.misses", "In-process near cache misses");
+        l2Hits = counter("cache.l2.hits", "Redis cache hits");
+        l2Misses = counter("cache.l2.misses", "Redis cache misses");
+        cacheKeysCleared = counter("cache.clear.keys", "Redis cache keys removed by bulk clears");
+        subscribersNotified = counter("image.subscriptions.notified", "Long-poll subscribers woken by a state change");
+        outboxRelayed = counter("outbox.relayed", "Outbox events relayed to Kafka");
+        publishFailures = counter("kafka.publish.failures", "Kafka sends that failed");
+        reaperRequeued = counter("images.reaper.requeued", "Stuck images sent for inference again");
+        reaperFailed = counter("images.reaper.failed", "Stuck images marked FAILED after exhausting their attempts");
+        partitionsRetired = counter("images.partitions.retired", "Monthly images partitions archived, dropped or detached");
+        defaultPartitionRows = counter("images.partitions.default.rows",
+                "Rows moved out of images_default into a monthly partition created after they arrived");
+        readsToReplica = Counter.builder("db.reads.routed")
+                .description("Read-only transactions by the pool that served them")
+                .tag("target", "replica")
+                .register(meterRegistry);
+        readsToPrimary = Counter.builder("db.reads.routed")
+                .description("Read-only transactions by the pool that served them")
+                .tag("target", "primary")
+                .register(meterRegistry);
+        replicaFallbacks = counter("db.replica.fallbacks", "Reads repeated on the primary after a replica had not seen the row yet");
+
+        uploadDuration = latencyTimer("image.upload.duration", "Upload request, validation through commit")
+                .tag("mode", "single")
+                .register(meterRegistry);
+        bulkUploadDuration = latencyTimer("image.upload.duration", "Upload request, validation through commit")
+                .tag("mode", "bulk")
+                .register(meterRegistry);
+        inferenceDuration = latencyTimer("image.inference.duration", "Inference time reported by the worker")
+                .register(meterRegistry);
+        publishDuration = latencyTimer("kafka.publish.duration", "Time from send to broker acknowledgement")
+                .register(meterRegistry);
+        outboxBatchDuration = latencyTimer("outbox.relay.batch.duration", "Time to lock, send and delete one outbox batch")
+                .register(meterRegistry);
+        reaperBatchDuration = latencyTimer("images.reaper.batch.duration", "Time to lock and resolve one batch of stuck images")
+                .register(meterRegistry);
+        for (ImageStatus status : ImageStatus.values()) {
+            if (status.isTerminal()) {
+                processingDurations.put(status, latencyTimer("image.processing.duration",
+                        "End to end, from upload to the image reaching a terminal state")
+                        .tag("status", status.name())
+                        .maximumExpectedValue(Duration.ofHours(1))
+                        .register(meterRegistry));
+            }
+        }
+    }
+
     public void recordImageUpload() {
-        Counter.builder("images.uploaded")
-                .description("Total images uploaded")
-                .register(meterRegistry)
-                .increment();
+        imagesUploaded.increment();
+    }
+
+    public void recordUploadDuration(boolean bulk, long durationNanos) {
+        (bulk ? bulkUploadDuration : uploadDuration).record(durationNanos, TimeUnit.NANOSECONDS);
     }
 
     public void recordSuccessfulProcessing() {
-        Counter.builder("images.processed.success")
-                .description("Successfully processed images")
-                .register(meterRegistry)
-                .increment();
+        processedSuccess.increment();
     }
 
     public void recordFailedProcessing() {
-        Counter.builder("images.processed.failed")
-                .description("Failed image processing")
-                .register(meterRegistry)
+        processedFailed.increment();
+    }
+
+    // outcome: completed (result inherited), coalesced (waits on an in-flight copy) or miss; hit rate = 1 - miss / total
+    public void recordContentDedup(String outcome) {
+        dedupOutcomes.computeIfAbsent(outcome, key -> Counter.builder("images.dedup")
+                        .description("Uploads by content-hash dedup outcome")
+                        .tag("outcome", key)
+                        .register(meterRegistry))
                 .increment();
     }
 
+    public void recordDuplicateResultSuppressed() {
+        duplicateResults.increment();
+    }
+
+    public void recordResultRetryScheduled() {
+        resultRetries.increment();
+    }
+
+    public void recordResultDeadLettered() {
+        resultsDeadLettered.increment();
+    }
+
+    public void recordDeadLetterReplayed() {
+        deadLettersReplayed.increment();
+    }
+
     public void recordCacheHit() {
-        Counter.builder("cache.hits")
-                .description("Cache hits")
-                .register(meterRegistry)
-                .increment();
+        cacheHits.increment();
     }
 
     public void recordCacheMiss() {
-        Counter.builder("cache.misses")
-                .description("Cache misses")
-                .register(meterRegistry)
+        cacheMisses.increment();
+    }
+
+    public void recordL1CacheHit() {
+        l1Hits.increment();
+    }
+
+    public void recordL1CacheMiss() {
+        l1Misses.increment();
+    }
+
+    public void recordL2CacheHit() {
+        l2Hits.increment();
+    }
+
+    public void recordL2CacheMiss() {
+        l2Misses.increment();
+    }
+
+    // operation: get (single id) or mget (batch lookup)
+    public void recordCacheLookup(String operation, long durationNanos) {
+        cacheLookupDurations.computeIfAbsent(operation, key ->
+                        latencyTimer("cache.lookup.duration", "Redis round trip for cache reads")
+                                .tag("operation", key)
+                                .register(meterRegistry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Exposes size, evictions and load stats of the in-process near cache
+    public void monitorNearCache(Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "image.near.cache");
+    }
+
+    public void monitorCacheClear(AtomicBoolean inProgress) {
+        Gauge.builder("cache.clear.in_progress", inProgress, flag -> flag.get() ? 1 : 0)
+                .description("1 while a background cache clear is running")
+                .register(meterRegistry);
+    }
+
+    public void recordCacheKeysCleared(long count) {
+        cacheKeysCleared.increment(count);
+    }
+
+    public void monitorSubscriptions(Map<Long, ?> waitersById) {
+        Gauge.builder("image.subscriptions.images", waitersById, Map::size)
+                .description("Images with at least one waiting long-poll subscriber on this node")
+                .register(meterRegistry);
+    }
+
+    public void recordSubscribersNotified(int count) {
+        subscribersNotified.increment(count);
+    }
+
+    public void monitorOutboxLag(AtomicLong lagMillis) {
+        Gauge.builder("outbox.lag", lagMillis, AtomicLong::get)
+                .description("Age of the oldest outbox event not yet relayed to Kafka")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public void recordOutboxRelayed(int count, long durationNanos) {
+        outboxRelayed.increment(count);
+        outboxBatchDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPublishLatency(long durationNanos) {
+        publishDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPublishFailure() {
+        publishFailures.increment();
+    }
+
+    // operation: results, failure, bulk-upload; each measurement includes the commit
+    public void recordDbWrite(String operation, long durationNanos) {
+        dbWriteDurations.computeIfAbsent(operation, key ->
+                        latencyTimer("db.write.duration", "Write transaction, including commit")
+                                .tag("operation", key)
+                                .register(meterRegistry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordListenerLatency(String listener, long durationNanos) {
+        listenerDurations.computeIfAbsent(listener, key ->
+                        latencyTimer("kafka.listener.handler.duration",
+                                "Time a listener spends on one poll or record, including DB writes")
+                                .tag("listener", key)
+                                .register(meterRegistry))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPartitionLag(String topic, int partition, long lag) {
+        partitionLags.computeIfAbsent(topic + "-" + partition, key -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder("kafka.consumer.partition.lag", value, AtomicLong::get)
+                    .description("Records behind the log end offset, as of this node's last poll")
+                    .tag("topic", topic)
+                    .tag("partition", String.valueOf(partition))
+                    .register(meterRegistry);
+            return value;
+        }).set(lag);
+    }
+
+    public void recordImagesReaped(int requeued, int failed, long durationNanos) {
+        reaperRequeued.increment(requeued);
+        reaperFailed.increment(failed);
+        reaperBatchDuration.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPartitionRetired() {
+        partitionsRetired.increment();
+    }
+
+    // Non-zero means partition maintenance fell behind the clock
+    public void recordDefaultPartitionRows(long rows) {
+        defaultPartitionRows.increment(rows);
+    }
+
+    public void monitorReplicaLag(String pool, AtomicLong lagMillis) {
+        Gauge.builder("db.replica.lag", lagMillis, AtomicLong::get)
+                .description("Replay lag at the last check; Long.MAX_VALUE while unreachable")
+                .baseUnit("milliseconds")
+                .tag("pool", pool)
+                .register(meterRegistry);
+    }
+
+    // Only read-only transactions while replicas are configured; everything else goes to the primary uncounted
+    public void recordReadRouted(boolean toReplica) {
+        (toReplica ? readsToReplica : readsToPrimary).increment();
+    }
+
+    public void recordReplicaFallback() {
+        replicaFallbacks.increment();
+    }
+
+    public void recordUploadRejected() {
+        uploadsRejected.increment();
+    }
+
+    // reason: rate (client over its token bucket), concurrency (in-flight cap), shed (outbox lag)
+    public void recordUploadThrottled(String clientId, String reason) {
+        String client = uploadsThrottled.size() < maxClientTags
+                || uploadsThrottled.containsKey(clientId + "|" + reason) ? clientId : "other";
+        uploadsThrottled.computeIfAbsent(client + "|" + reason, key -> Counter.builder("images.upload.throttled")
+                        .description("Uploads rejected with 429 by upload admission")
+                        .tag("client", client)
+                        .tag("reason", reason)
+                        .register(meterRegistry))
                 .increment();
     }
 
-    public void recordProcessingTime(long durationMs) {
-        Timer.builder("image.processing.duration")
-                .description("Time to process image")
-                .publishPercentiles(0.5, 0.95, 0.99)
-                .register(meterRegistry)
-                .record(durationMs, TimeUnit.MILLISECONDS);
+    public void monitorUploadsInFlight(Semaphore available, int limit) {
+        Gauge.builder("images.upload.in_flight", available, permits -> limit - permits.availablePermits())
+                .description("Uploads admitted and not yet finished on this node")
+                .register(meterRegistry);
+    }
+
+    // End to end, from ImageEntity.createdAt to the terminal state; status is COMPLETED or FAILED
+    public void recordProcessingTime(ImageStatus status, long durationMs) {
+        Timer timer = processingDurations.get(status);
+        if (timer != null) {
+            timer.record(durationMs, TimeUnit.MILLISECONDS);
+        }
     }
 
-}
\ No newline at end of file
+    public void recordInferenceTime(long durationMs) {
+        inferenceDuration.record(durationMs, TimeUnit.MILLISECONDS);
+    }
+
+    private Counter counter(String name, String description) {
+        return Counter.builder(name)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    private static Timer.Builder latencyTimer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,33 @@
+package com.inference.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+
+// Walks multipart files one at a time, closing each part's stream before opening the next
+public class MultipartUploadEntrySource implements UploadEntrySource {
+
+    private final Iterator<MultipartFile> files;
+    private InputStream current;
+
+    public MultipartUploadEntrySource(List<MultipartFile> files) {
+        this.files = files.iterator();
+    }
+
+    @Override
+    public UploadEntry next() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        if (!files.hasNext()) {
+            return null;
+        }
+
+        MultipartFile file = files.next();
+        current = file.getInputStream();
+        return new UploadEntry(file.getOriginalFilename(), current);
+    }
+}
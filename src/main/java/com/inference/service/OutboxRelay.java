@@ -0,0 +1,172 @@
+package com.inference.service;
+
+import com.inference.exception.ServiceBusyException;
+import com.inference.model.OutboxEvent;
+import com.inference.repository.OutboxRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drains image_outbox to Kafka; several replicas can relay in parallel, each claiming its own rows
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxRepository outboxRepository;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsService metricsService;
+
+    @Value("${inference.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${inference.outbox.send-timeout:10s}")
+    private Duration sendTimeout;
+
+    // How long claimed rows stay hidden from other relays; must exceed send-timeout
+    @Value("${inference.outbox.claim-ttl:30s}")
+    private Duration claimTtl;
+
+    @Value("${inference.outbox.max-lag:30s}")
+    private Duration maxLag;
+
+    @Value("${inference.outbox.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    // Age of the oldest unsent row as of the last relay pass
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        if (claimTtl.compareTo(sendTimeout) <= 0) {
+            throw new IllegalStateException("inference.outbox.claim-ttl must be longer than inference.outbox.send-timeout");
+        }
+        metricsService.monitorOutboxLag(lagMillis);
+    }
+
+    public long getLagMillis() {
+        return lagMillis.get();
+    }
+
+    // Upload admission: refuse new work while the relay is this far behind
+    public void checkBacklog() {
+        if (lagMillis.get() > maxLag.toMillis()) {
+            metricsService.recordUploadRejected();
+            throw new ServiceBusyException("Processing queue is behind, retry later", retryAfterSeconds);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inference.outbox.poll-interval:PT0.2S}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+
+        } catch (Exception e) {
+            log.error("Outbox relay pass failed", e);
+
+        } finally {
+            updateLag();
+        }
+    }
+
+    // Claim, send, settle: the two short transactions bracket the sends, so a slow or unreachable broker never
+    // holds a pooled connection or row locks. Returns the number sent, so a pass keeps draining only while
+    // full batches go through cleanly.
+    private int relayBatch() {
+        long startTime = System.nanoTime();
+        List<OutboxEvent> batch = transactionTemplate.execute(status -> claimNextBatch());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(send(event));
+        }
+
+        // One deadline for the whole batch rather than send-timeout per record
+        long deadline = System.nanoTime() + sendTimeout.toNanos();
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        List<Long> failedIds = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                sends.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                sentIds.add(event.getId());
+
+            } catch (TimeoutException e) {
+                // Possibly still in flight; the claim lapses and a later pass sends it again
+                log.error("Timed out relaying outbox event {} to {}", event.getId(), event.getTopic());
+                metricsService.recordPublishFailure();
+
+            } catch (Exception e) {
+                log.error("Error relaying outbox event {} to {}", event.getId(), event.getTopic(), e);
+                metricsService.recordPublishFailure();
+                failedIds.add(event.getId());
+            }
+        }
+
+        if (!sentIds.isEmpty() || !failedIds.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!sentIds.isEmpty()) {
+                    outboxRepository.deleteAllByIdInBatch(sentIds);
+                }
+                if (!failedIds.isEmpty()) {
+                    outboxRepository.release(failedIds);
+                }
+            });
+        }
+        metricsService.recordOutboxRelayed(sentIds.size(), System.nanoTime() - startTime);
+        log.debug("Relayed {} of {} outbox events", sentIds.size(), batch.size());
+        return sentIds.size();
+    }
+
+    // Locks the next unclaimed rows just long enough to stamp them with a lease that outlasts the send deadline
+    private List<OutboxEvent> claimNextBatch() {
+        List<OutboxEvent> batch = outboxRepository.lockNextBatch(batchSize);
+        if (!batch.isEmpty()) {
+            outboxRepository.claim(batch.stream().map(OutboxEvent::getId).toList(), claimTtl.toMillis() / 1000.0);
+        }
+        return batch;
+    }
+
+    private CompletableFuture<SendResult<String, byte[]>> send(OutboxEvent event) {
+        long startTime = System.nanoTime();
+        try {
+            return kafkaTemplate.send(event.getTopic(), event.getMessageKey(), event.getPayload())
+                    .whenComplete((result, ex) -> metricsService.recordPublishLatency(System.nanoTime() - startTime));
+
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void updateLag() {
+        try {
+            LocalDateTime oldest = outboxRepository.findOldestCreatedAt();
+            long lag = oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis();
+            lagMillis.set(Math.max(0, lag));
+
+        } catch (Exception e) {
+            log.warn("Failed to measure outbox lag", e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.inference.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+// Fans one listener poll out over a fixed pool. Items are split into stripes by key hash, so all items
+// for one key run on the same task in their original order.
+@Component
+@Slf4j
+public class StripedExecutor {
+
+    @Value("${inference.kafka.striping.enabled:false}")
+    private boolean enabled;
+
+    @Value("${inference.kafka.striping.stripes:16}")
+    private int stripes;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        if (enabled) {
+            executor = Executors.newFixedThreadPool(stripes, new CustomizableThreadFactory("result-stripe-"));
+            log.info("Striped result handling enabled with {} stripes", stripes);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Blocks until every stripe has finished, so the caller can commit offsets afterwards.
+    // Throws if any stripe failed, which leaves the whole poll uncommitted for redelivery.
+    public <T> void execute(List<T> items, ToLongFunction<T> key, Consumer<List<T>> handler) {
+        List<List<T>> groups = new ArrayList<>(stripes);
+        for (int i = 0; i < stripes; i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            groups.get(Math.floorMod(Long.hashCode(key.applyAsLong(item)), stripes)).add(item);
+        }
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>(stripes);
+        for (List<T> group : groups) {
+            if (!group.isEmpty()) {
+                tasks.add(CompletableFuture.runAsync(() -> handler.accept(group), executor));
+            }
+        }
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+    }
+}
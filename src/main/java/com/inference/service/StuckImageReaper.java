@@ -0,0 +1,122 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import com.inference.repository.ImageRepository;
+import com.inference.repository.OutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Finds images stuck in PENDING/PROCESSING (worker died, message lost) and either queues them again
+// or, after max-attempts, marks them FAILED. Replicas split the work through SKIP LOCKED.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StuckImageReaper {
+
+    private final ImageRepository imageRepository;
+    private final OutboxRepository outboxRepository;
+    private final ImageService imageService;
+    private final ImageCountService imageCountService;
+    private final ClassificationStatsService classificationStatsService;
+    private final CacheService cacheService;
+    private final ImageNotificationService imageNotificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final MetricsService metricsService;
+
+    @Value("${inference.reaper.enabled:true}")
+    private boolean enabled;
+
+    @Value("${inference.reaper.stale-after:10m}")
+    private Duration staleAfter;
+
+    @Value("${inference.reaper.batch-size:200}")
+    private int batchSize;
+
+    @Value("${inference.reaper.max-attempts:3}")
+    private int maxAttempts;
+
+    @Scheduled(fixedDelayString = "${inference.reaper.interval:PT1M}",
+            initialDelayString = "${inference.reaper.initial-delay:PT1M}")
+    public void reap() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minus(staleAfter);
+            Integer reaped;
+            do {
+                reaped = transactionTemplate.execute(status -> reapBatch(cutoff));
+            } while (reaped != null && reaped == batchSize);
+
+        } catch (Exception e) {
+            log.error("Stuck image reaper pass failed", e);
+        }
+    }
+
+    // One locked batch: requeue through the outbox in the same transaction, or give up on the image
+    private int reapBatch(LocalDateTime cutoff) {
+        long startTime = System.nanoTime();
+        List<ImageEntity> stale = imageRepository.lockStaleBatch(cutoff, batchSize);
+        if (stale.isEmpty()) {
+            return 0;
+        }
+
+        List<ImageEntity> requeued = new ArrayList<>();
+        List<ImageEntity> exhausted = new ArrayList<>();
+        Map<ImageStatus, Long> counts = ImageCountService.newDeltas();
+
+        for (ImageEntity image : stale) {
+            if (image.getAttempts() >= maxAttempts) {
+                exhausted.add(image);
+
+            } else {
+                // Back to PENDING also refreshes updated_at, which restarts the stale timer
+                ImageCountService.move(counts, image.getStatus(), ImageStatus.PENDING);
+                image.setStatus(ImageStatus.PENDING);
+                image.setAttempts(image.getAttempts() + 1);
+                requeued.add(image);
+            }
+        }
+
+        // Uploads coalesced onto a given-up image fail with it, as they do in markImageFailed
+        List<ImageEntity> failed = exhausted.isEmpty() ? List.of() : imageService.failWithFollowers(exhausted,
+                image -> "Timed out after " + (image.getAttempts() + 1) + " attempts", counts, LocalDateTime.now());
+
+        outboxRepository.saveAll(requeued.stream()
+                .map(imageService::processingEvent)
+                .toList());
+        imageCountService.apply(counts);
+
+        if (!failed.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cacheService.cacheResults(failed);
+                    imageNotificationService.publishStateChanges(failed.stream()
+                            .map(ImageEntity::getId)
+                            .toList());
+                    imageService.recordProcessingTimes(failed);
+                    classificationStatsService.record(failed);
+                }
+            });
+        }
+
+        metricsService.recordImagesReaped(requeued.size(), failed.size(), System.nanoTime() - startTime);
+        log.info("Reaped {} stuck images: {} requeued, {} failed ({} with their copies)",
+                stale.size(), requeued.size(), exhausted.size(), failed.size());
+        return stale.size();
+    }
+}
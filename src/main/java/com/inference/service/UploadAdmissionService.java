@@ -0,0 +1,202 @@
+package com.inference.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.inference.exception.RateLimitedException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Admission for uploads, checked before any work is done: adaptive shedding on outbox lag, a token bucket
+// per API client shared by all replicas through Redis, and a cap on uploads in flight on this node.
+// Rejections surface as RateLimitedException (429 with Retry-After); OutboxRelay.checkBacklog stays the hard 503 stop.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadAdmissionService {
+
+    private static final String BUCKET_KEY_PREFIX = "ratelimit:upload:";
+    private static final RedisScript<List> TOKEN_BUCKET =
+            RedisScript.of(new ClassPathResource("scripts/token_bucket.lua"), List.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final OutboxRelay outboxRelay;
+    private final MetricsService metricsService;
+
+    @Value("${inference.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    // Sustained uploads per second per client, and how many may arrive back to back
+    @Value("${inference.rate-limit.rate:20}")
+    private double rate;
+
+    @Value("${inference.rate-limit.burst:40}")
+    private long burst;
+
+    // Tokens taken from Redis at a time; the rest are spent locally without a round trip
+    @Value("${inference.rate-limit.lease-size:5}")
+    private int leaseSize;
+
+    // Leased tokens unspent after this go back to the bucket with the next lease, bounding how far a replica can
+    // run ahead of the bucket without costing a client that sends below its rate the tokens it never used
+    @Value("${inference.rate-limit.lease-ttl:500ms}")
+    private Duration leaseTtl;
+
+    @Value("${inference.rate-limit.max-clients:100000}")
+    private long maxClients;
+
+    @Value("${inference.rate-limit.max-in-flight:64}")
+    private int maxInFlight;
+
+    // Shedding starts at this outbox lag and reaches every upload at inference.outbox.max-lag
+    @Value("${inference.rate-limit.shed-start-lag:10s}")
+    private Duration shedStartLag;
+
+    @Value("${inference.outbox.max-lag:30s}")
+    private Duration maxLag;
+
+    @Value("${inference.rate-limit.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private Cache<String, LocalBucket> localBuckets;
+    private Semaphore inFlight;
+
+    // Tokens leased from the client's Redis bucket, or a known wait before it has any
+    private static final class LocalBucket {
+        private int tokens;
+        private long expiresAtNanos;
+        private long deniedUntilNanos;
+    }
+
+    // Released once the upload has finished, whatever the outcome
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    @PostConstruct
+    void init() {
+        localBuckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build();
+        inFlight = new Semaphore(maxInFlight);
+        metricsService.monitorUploadsInFlight(inFlight, maxInFlight);
+    }
+
+    public Permit admit(String clientId) {
+        if (!enabled) {
+            return () -> { };
+        }
+
+        shedIfBehind(clientId);
+        acquireToken(clientId);
+
+        if (!inFlight.tryAcquire()) {
+            // Nothing was admitted, so the client keeps its token
+            refundToken(clientId);
+            reject(clientId, "concurrency", retryAfterSeconds);
+        }
+        return inFlight::release;
+    }
+
+    // Bulk uploads are admitted once and then take a token per entry: the first comes with admit, each
+    // further one as the entry is reached and before its content is read. A denial ends the stream there.
+    public UploadEntrySource meter(String clientId, UploadEntrySource source) {
+        if (!enabled) {
+            return source;
+        }
+
+        boolean[] first = {true};
+        return () -> {
+            UploadEntry entry = source.next();
+            if (entry != null && !first[0]) {
+                acquireToken(clientId);
+            }
+            first[0] = false;
+            return entry;
+        };
+    }
+
+    // Rejects a share of uploads rising linearly from 0 at shed-start-lag to 1 at max-lag
+    private void shedIfBehind(String clientId) {
+        long lag = outboxRelay.getLagMillis();
+        long start = shedStartLag.toMillis();
+        if (lag <= start) {
+            return;
+        }
+
+        double shedRatio = (double) (lag - start) / Math.max(1, maxLag.toMillis() - start);
+        if (ThreadLocalRandom.current().nextDouble() < shedRatio) {
+            reject(clientId, "shed", retryAfterSeconds);
+        }
+    }
+
+    private void acquireToken(String clientId) {
+        LocalBucket bucket = localBuckets.get(clientId, key -> new LocalBucket());
+        long waitMillis;
+
+        synchronized (bucket) {
+            long now = System.nanoTime();
+            if (now - bucket.deniedUntilNanos < 0) {
+                waitMillis = TimeUnit.NANOSECONDS.toMillis(bucket.deniedUntilNanos - now);
+
+            } else if (bucket.tokens > 0 && now - bucket.expiresAtNanos < 0) {
+                bucket.tokens--;
+                return;
+
+            } else {
+                // Anything left here has lapsed unspent
+                long[] lease = lease(clientId, bucket.tokens);
+                if (lease[0] > 0) {
+                    bucket.tokens = (int) lease[0] - 1;
+                    bucket.expiresAtNanos = now + leaseTtl.toNanos();
+                    return;
+                }
+                bucket.tokens = 0;
+                waitMillis = lease[1];
+                bucket.deniedUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+            }
+        }
+
+        reject(clientId, "rate", Math.max(1, (waitMillis + 999) / 1000));
+    }
+
+    // Back into the local lease; if that has lapsed by the next request, the lease after it returns it to Redis
+    private void refundToken(String clientId) {
+        LocalBucket bucket = localBuckets.getIfPresent(clientId);
+        if (bucket != null) {
+            synchronized (bucket) {
+                bucket.tokens++;
+            }
+        }
+    }
+
+    // {granted, wait ms}; fails open while Redis is unreachable so an outage there does not stop uploads
+    private long[] lease(String clientId, int returned) {
+        try {
+            List<?> result = redisTemplate.execute(TOKEN_BUCKET, List.of(BUCKET_KEY_PREFIX + clientId),
+                    String.valueOf(rate), String.valueOf(burst), String.valueOf(leaseSize), String.valueOf(returned));
+            return new long[]{((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue()};
+
+        } catch (Exception e) {
+            log.warn("Rate limit check failed for client {}, admitting: {}", clientId, e.getMessage());
+            return new long[]{1, 0};
+        }
+    }
+
+    private void reject(String clientId, String reason, long retryAfter) {
+        metricsService.recordUploadThrottled(clientId, reason);
+        throw new RateLimitedException("Upload rejected (" + reason + "), retry later", reason, retryAfter);
+    }
+}
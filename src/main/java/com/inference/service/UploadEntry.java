@@ -0,0 +1,13 @@
+package com.inference.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import java.io.InputStream;
+
+// One image of a bulk upload; content is only readable until the next entry is requested
+@Getter
+@AllArgsConstructor
+public class UploadEntry {
+    private final String fileName;
+    private final InputStream content;
+}
@@ -0,0 +1,12 @@
+package com.inference.service;
+
+import java.io.IOException;
+
+// Pull-based source of bulk upload entries, so parts are handled as they arrive
+@FunctionalInterface
+public interface UploadEntrySource {
+
+    // Returns null once there are no more entries
+    UploadEntry next() throws IOException;
+
+}
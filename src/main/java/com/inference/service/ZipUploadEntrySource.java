@@ -0,0 +1,31 @@
+package com.inference.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Reads a zip archive entry by entry straight off the request body, never buffering the whole archive
+public class ZipUploadEntrySource implements UploadEntrySource {
+
+    private final ZipInputStream zip;
+
+    public ZipUploadEntrySource(InputStream body) {
+        this.zip = new ZipInputStream(body);
+    }
+
+    @Override
+    public UploadEntry next() throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (!entry.isDirectory()) {
+                return new UploadEntry(fileName(entry.getName()), zip);
+            }
+        }
+        return null;
+    }
+
+    private static String fileName(String entryName) {
+        return entryName.substring(entryName.lastIndexOf('/') + 1);
+    }
+}
@@ -0,0 +1,25 @@
+-- Columns, indexes and tables the entities gained after the baseline: the optimistic-lock version, the content
+-- hash for upload dedup, the reaper's attempt count, the keyset-listing and reaper indexes, and the outbox.
+-- A database that ran a build with ddl-auto: update may already have some of them, hence IF NOT EXISTS.
+
+ALTER TABLE images ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
+ALTER TABLE images ADD COLUMN IF NOT EXISTS content_hash varchar(64);
+ALTER TABLE images ADD COLUMN IF NOT EXISTS attempts integer DEFAULT 0 NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_content_hash ON images (content_hash);
+CREATE INDEX IF NOT EXISTS idx_status_created_id ON images (status, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_created_id ON images (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_status_updated_at ON images (status, updated_at);
+
+-- Prefixes of idx_status_created_id and idx_created_id
+DROP INDEX IF EXISTS idx_status;
+DROP INDEX IF EXISTS idx_created_at;
+
+CREATE TABLE IF NOT EXISTS image_outbox (
+    id          bigserial    NOT NULL,
+    created_at  timestamp(6) NOT NULL,
+    message_key varchar(255),
+    payload     bytea        NOT NULL,
+    topic       varchar(255) NOT NULL,
+    CONSTRAINT image_outbox_pkey PRIMARY KEY (id)
+);
@@ -0,0 +1,25 @@
+-- Schema as created by ddl-auto before migrations were introduced, constraint names included. Databases that
+-- already have it are baselined at this version and skip this file; empty databases run it. Everything added
+-- since lives in later versions, which both kinds of database run.
+
+CREATE TABLE IF NOT EXISTS images (
+    id                    bigserial    NOT NULL,
+    classification_result text,
+    confidence_score      float(53),
+    created_at            timestamp(6) NOT NULL,
+    error_message         varchar(255),
+    image_url             varchar(500) NOT NULL,
+    processing_time_ms    bigint,
+    s3_key                varchar(500) NOT NULL,
+    status                varchar(255) NOT NULL,
+    updated_at            timestamp(6) NOT NULL,
+    CONSTRAINT images_pkey PRIMARY KEY (id),
+    CONSTRAINT images_status_check
+        CHECK (status IN ('PENDING', 'PROCESSING', 'COMPLETED', 'FAILED', 'CACHED')),
+    CONSTRAINT uk_ck6sqeo1ibsbqabe9c03d3hfj UNIQUE (image_url),
+    CONSTRAINT uk_p9l8cdlfu2bouk1quucr3gvvv UNIQUE (s3_key)
+);
+
+CREATE INDEX IF NOT EXISTS idx_s3_key ON images (s3_key);
+CREATE INDEX IF NOT EXISTS idx_status ON images (status);
+CREATE INDEX IF NOT EXISTS idx_created_at ON images (created_at);
@@ -0,0 +1,13 @@
+-- Moves ids from serial columns to sequences Hibernate reserves in blocks (pooled-lo), so it no longer
+-- has to run each INSERT on its own to read the key back. INCREMENT BY is the block size and must match
+-- inference.id.allocation-size. setval starts each sequence above the highest existing id.
+
+CREATE SEQUENCE IF NOT EXISTS images_seq INCREMENT BY ${idAllocationSize};
+SELECT setval('images_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM images), false);
+ALTER TABLE images ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS images_id_seq;
+
+CREATE SEQUENCE IF NOT EXISTS image_outbox_seq INCREMENT BY ${idAllocationSize};
+SELECT setval('image_outbox_seq', (SELECT COALESCE(MAX(id), 0) + 1 FROM image_outbox), false);
+ALTER TABLE image_outbox ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS image_outbox_id_seq;
@@ -0,0 +1,53 @@
+-- Turns images into a table range-partitioned by month on created_at. The existing table becomes the
+-- partition images_legacy, covering everything up to the end of the current month; ImagePartitionMaintenance
+-- creates the monthly partitions after it and retires old ones.
+--
+-- Unique constraints on a partitioned table must include created_at, so s3_key and image_url lose
+-- theirs; both embed a random UUID. The legacy partition keeps its own.
+
+ALTER TABLE images RENAME TO images_legacy;
+-- A partition takes the parent's primary key, so the legacy key on id alone gives way to (id, created_at)
+ALTER TABLE images_legacy DROP CONSTRAINT images_pkey;
+ALTER TABLE images_legacy ADD CONSTRAINT images_legacy_pkey PRIMARY KEY (id, created_at);
+ALTER INDEX IF EXISTS idx_s3_key RENAME TO images_legacy_s3_key_idx;
+ALTER INDEX IF EXISTS idx_status_created_id RENAME TO images_legacy_status_created_id_idx;
+ALTER INDEX IF EXISTS idx_created_id RENAME TO images_legacy_created_id_idx;
+ALTER INDEX IF EXISTS idx_status_updated_at RENAME TO images_legacy_status_updated_at_idx;
+ALTER INDEX IF EXISTS idx_content_hash RENAME TO images_legacy_content_hash_idx;
+
+CREATE TABLE images (
+    id                    bigint       NOT NULL,
+    image_url             varchar(500) NOT NULL,
+    s3_key                varchar(500) NOT NULL,
+    content_hash          varchar(64),
+    status                varchar(255) NOT NULL,
+    classification_result text,
+    confidence_score      float(53),
+    processing_time_ms    bigint,
+    created_at            timestamp(6) NOT NULL,
+    updated_at            timestamp(6) NOT NULL,
+    error_message         varchar(255),
+    attempts              integer DEFAULT 0 NOT NULL,
+    version               bigint DEFAULT 0 NOT NULL,
+    CONSTRAINT images_pkey PRIMARY KEY (id, created_at),
+    -- ATTACH matches CHECK constraints by name, so this must keep the legacy table's
+    CONSTRAINT images_status_check
+        CHECK (status IN ('PENDING', 'PROCESSING', 'COMPLETED', 'FAILED', 'CACHED'))
+) PARTITION BY RANGE (created_at);
+
+CREATE INDEX idx_s3_key ON images (s3_key);
+CREATE INDEX idx_status_created_id ON images (status, created_at, id);
+CREATE INDEX idx_created_id ON images (created_at, id);
+CREATE INDEX idx_status_updated_at ON images (status, updated_at);
+CREATE INDEX idx_content_hash ON images (content_hash);
+
+-- Matching legacy indexes are attached as they are; only the (id, created_at) key is built
+DO $$
+DECLARE
+    legacy_upper timestamp := date_trunc('month', now()) + interval '1 month';
+BEGIN
+    -- Lets ATTACH skip the full-table scan that proves every row fits the bound
+    EXECUTE format('ALTER TABLE images_legacy ADD CONSTRAINT images_legacy_bound CHECK (created_at < %L)', legacy_upper);
+    EXECUTE format('ALTER TABLE images ATTACH PARTITION images_legacy FOR VALUES FROM (MINVALUE) TO (%L)', legacy_upper);
+    ALTER TABLE images_legacy DROP CONSTRAINT images_legacy_bound;
+END $$;
@@ -0,0 +1,14 @@
+-- Classification outcomes per tumbling window, maintained by ClassificationStatsService. Every replica adds
+-- its in-memory deltas with an upsert, so a row holds the merged total across replicas. label is '' for
+-- outcomes without one (FAILED); confidence_buckets[i] counts confidences in [(i-1)/n, i/n), the last
+-- bucket including 1.0, and sums to the number of results that reported a confidence.
+
+CREATE TABLE IF NOT EXISTS classification_stats (
+    window_start       timestamp(6)     NOT NULL,
+    status             varchar(255)     NOT NULL,
+    label              varchar(255)     NOT NULL,
+    count              bigint           NOT NULL,
+    confidence_sum     double precision NOT NULL,
+    confidence_buckets bigint[]         NOT NULL,
+    PRIMARY KEY (window_start, status, label)
+);
@@ -0,0 +1,5 @@
+-- OutboxRelay claims a batch in a short transaction and sends it after committing, so no row lock or
+-- connection is held while Kafka is slow. A claimed row is skipped by other relays until claimed_until,
+-- which outlasts the relay's send deadline; a relay that dies mid-send leaves its rows to be claimed again.
+
+ALTER TABLE image_outbox ADD COLUMN IF NOT EXISTS claimed_until timestamptz;
@@ -0,0 +1,4 @@
+-- Pooled ids are handed out in blocks per node, so id order is not creation order. The relay claims and
+-- measures lag by created_at instead; id breaks ties between rows written in the same microsecond.
+
+CREATE INDEX IF NOT EXISTS idx_outbox_created_id ON image_outbox (created_at, id);
@@ -0,0 +1,5 @@
+-- Takes rows no monthly partition covers, so uploads keep working if partition maintenance has been down across
+-- a month boundary instead of failing with "no partition of relation found for row". ImagePartitionMaintenance
+-- moves such rows into their monthly partition when it creates it, and counts them in images.partitions.default.rows.
+
+CREATE TABLE IF NOT EXISTS images_default PARTITION OF images DEFAULT;
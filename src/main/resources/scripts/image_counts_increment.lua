@@ -0,0 +1,11 @@
+-- Applies per-status deltas to the image counts, and to the reconcile journal while a reconcile has one open.
+-- KEYS[1]: counts hash, KEYS[2]: journal hash. ARGV: status, delta pairs.
+local journaling = redis.call('EXISTS', KEYS[2]) == 1
+
+for i = 1, #ARGV, 2 do
+  redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1])
+  if journaling then
+    redis.call('HINCRBY', KEYS[2], ARGV[i], ARGV[i + 1])
+  end
+end
+return 1
@@ -0,0 +1,19 @@
+-- Sets each count to the database snapshot plus the deltas journaled since the snapshot began, so increments
+-- that land while the GROUP BY runs are kept rather than overwritten. Returns the total adjustment applied,
+-- or false without writing anything if the journal is not the one this reconcile opened (it expired).
+-- KEYS[1]: counts hash, KEYS[2]: journal hash. ARGV[1]: journal token, then status, count pairs.
+if redis.call('HGET', KEYS[2], '_token') ~= ARGV[1] then
+  return false
+end
+
+local adjusted = 0
+for i = 2, #ARGV, 2 do
+  local count = tonumber(ARGV[i + 1]) + (tonumber(redis.call('HGET', KEYS[2], ARGV[i])) or 0)
+  local current = redis.call('HGET', KEYS[1], ARGV[i])
+  if not current or tonumber(current) ~= count then
+    redis.call('HSET', KEYS[1], ARGV[i], string.format('%d', count))
+    adjusted = adjusted + math.abs(count - (tonumber(current) or 0))
+  end
+end
+redis.call('DEL', KEYS[2])
+return adjusted
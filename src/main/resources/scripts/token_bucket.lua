@@ -0,0 +1,31 @@
+-- Token bucket for one API client, refilled lazily from Redis' own clock so replicas need no clock sync.
+-- KEYS[1]: bucket hash (tokens, ts). ARGV: refill rate per second, burst capacity, tokens wanted, and
+-- optionally tokens returned unspent from an earlier grant, which go back in as if never taken.
+-- Grants up to the tokens wanted and returns {granted, ms until the next token when nothing was granted}.
+local rate = tonumber(ARGV[1])
+local burst = tonumber(ARGV[2])
+local wanted = tonumber(ARGV[3])
+local returned = tonumber(ARGV[4]) or 0
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+
+local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(state[1]) or burst
+local ts = tonumber(state[2]) or now
+if now > ts then
+  tokens = tokens + (now - ts) * rate / 1000
+end
+tokens = math.min(burst, tokens + returned)
+
+local granted = math.min(wanted, math.floor(tokens))
+tokens = tokens - granted
+redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+-- A full refill later the bucket would be at capacity anyway
+redis.call('PEXPIRE', KEYS[1], math.ceil(burst * 1000 / rate) + 1000)
+
+local waitMs = 0
+if granted == 0 then
+  waitMs = math.ceil((1 - tokens) * 1000 / rate)
+end
+return {granted, waitMs}
@@ -0,0 +1,63 @@
+package com.inference.cache;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryCacheCodecTest {
+
+    private final BinaryCacheCodec codec = new BinaryCacheCodec();
+
+    @Test
+    void roundTripsReadPathFields() {
+        ImageEntity image = ImageEntity.builder()
+                .id(42L)
+                .imageUrl("https://cdn.example.com/images/ünïcode-cat.jpg")
+                .s3Key("images/ünïcode-cat.jpg")
+                .status(ImageStatus.COMPLETED)
+                .classificationResult("tabby:cat")
+                .confidenceScore(0.9731)
+                .errorMessage("ignored")
+                .createdAt(LocalDateTime.of(2025, 12, 24, 10, 30, 0, 123_456_000))
+                .updatedAt(LocalDateTime.of(2025, 12, 24, 10, 30, 15))
+                .build();
+
+        ImageEntity decoded = codec.decode(codec.encode(image));
+
+        assertThat(decoded.getId()).isEqualTo(42L);
+        assertThat(decoded.getImageUrl()).isEqualTo(image.getImageUrl());
+        assertThat(decoded.getStatus()).isEqualTo(ImageStatus.COMPLETED);
+        assertThat(decoded.getClassificationResult()).isEqualTo("tabby:cat");
+        assertThat(decoded.getConfidenceScore()).isEqualTo(0.9731);
+        assertThat(decoded.getCreatedAt()).isEqualTo(image.getCreatedAt());
+        assertThat(decoded.getUpdatedAt()).isEqualTo(image.getUpdatedAt());
+        assertThat(decoded.getS3Key()).isNull();
+        assertThat(decoded.getErrorMessage()).isNull();
+    }
+
+    @Test
+    void skipsAbsentFields() {
+        ImageEntity image = ImageEntity.builder()
+                .id(7L)
+                .imageUrl("https://cdn.example.com/images/a.jpg")
+                .status(ImageStatus.FAILED)
+                .build();
+
+        ImageEntity decoded = codec.decode(codec.encode(image));
+
+        assertThat(decoded.getStatus()).isEqualTo(ImageStatus.FAILED);
+        assertThat(decoded.getClassificationResult()).isNull();
+        assertThat(decoded.getConfidenceScore()).isNull();
+        assertThat(decoded.getCreatedAt()).isNull();
+    }
+
+    @Test
+    void rejectsUnknownFormatVersion() {
+        assertThatThrownBy(() -> codec.decode(new byte[]{99, 0, 0}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,58 @@
+package com.inference.controller;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageCursorTest {
+
+    @Test
+    void roundTripsPosition() {
+        // Microsecond precision, as stored in timestamp(6)
+        ImageCursor cursor = new ImageCursor(LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123_456_000), 9876543210L);
+
+        ImageCursor decoded = ImageCursor.decode(cursor.encode());
+
+        assertThat(decoded.getCreatedAt()).isEqualTo(cursor.getCreatedAt());
+        assertThat(decoded.getId()).isEqualTo(9876543210L);
+    }
+
+    @Test
+    void roundTripsWholeMinute() {
+        // LocalDateTime.toString drops zero seconds entirely
+        ImageCursor cursor = new ImageCursor(LocalDateTime.of(2024, 5, 1, 10, 15), 1);
+
+        assertThat(ImageCursor.decode(cursor.encode()).getCreatedAt()).isEqualTo(cursor.getCreatedAt());
+    }
+
+    @Test
+    void encodesUrlSafeWithoutPadding() {
+        String encoded = new ImageCursor(LocalDateTime.of(2024, 5, 1, 10, 15, 30), 42).encode();
+
+        assertThat(encoded).doesNotContain("=", "+", "/");
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThatThrownBy(() -> ImageCursor.decode("not base64!"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> ImageCursor.decode(encode("2024-05-01T10:15:30")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> ImageCursor.decode(encode("yesterday|42")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> ImageCursor.decode(encode("2024-05-01T10:15:30|forty-two")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    private static String encode(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,96 @@
+package com.inference.messaging;
+
+import org.junit.jupiter.api.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImageMessageCodecTest {
+
+    @Test
+    void roundTripsBinaryResult() {
+        ClassificationResult result = ClassificationResult.builder()
+                .imageId(1234567890123L)
+                .label("tabby")
+                .confidence(0.9731)
+                .processingTimeMs(87)
+                .topLabels(new String[]{"tabby", "tiger cat"})
+                .topScores(new float[]{0.9731f, 0.0211f})
+                .build();
+
+        byte[] payload = ImageMessageCodec.encodeResult(result);
+        ClassificationResult decoded = ImageMessageCodec.decodeResult(payload);
+
+        assertThat(decoded).isEqualTo(result);
+        // Repeated labels come back as the same instance instead of a fresh String
+        assertThat(ImageMessageCodec.decodeResult(payload).getLabel()).isSameAs(decoded.getLabel());
+    }
+
+    @Test
+    void ignoresTrailingFieldsFromNewerWriters() {
+        byte[] payload = ImageMessageCodec.encodeError(ProcessingError.builder()
+                .imageId(7)
+                .errorCode(404)
+                .message("object missing")
+                .build());
+        byte[] extended = Arrays.copyOf(payload, payload.length + 4);
+
+        ProcessingError decoded = ImageMessageCodec.decodeError(extended);
+
+        assertThat(decoded.getImageId()).isEqualTo(7);
+        assertThat(decoded.getErrorCode()).isEqualTo(404);
+        assertThat(decoded.getMessage()).isEqualTo("object missing");
+    }
+
+    @Test
+    void readsRequestsWithAndWithoutAttempt() {
+        byte[] request = ImageMessageCodec.encodeProcessingRequest(42, "images/a.jpg", 2);
+        assertThat(ImageMessageCodec.decodeProcessingRequest(request).getAttempt()).isEqualTo(2);
+
+        // A writer from before the attempt field existed
+        ProcessingRequest older = ImageMessageCodec.decodeProcessingRequest(Arrays.copyOf(request, request.length - 4));
+        assertThat(older.getS3Key()).isEqualTo("images/a.jpg");
+        assertThat(older.getAttempt()).isEqualTo(ProcessingRequest.FIRST_ATTEMPT);
+    }
+
+    @Test
+    void readsLegacyMessages() {
+        ClassificationResult result = ImageMessageCodec.decodeResult(utf8("42:n02123045:tabby:0.87"));
+        assertThat(result.getImageId()).isEqualTo(42);
+        assertThat(result.getLabel()).isEqualTo("n02123045:tabby");
+        assertThat(result.getConfidence()).isEqualTo(0.87);
+        assertThat(result.getProcessingTimeMs()).isEqualTo(ClassificationResult.UNKNOWN_PROCESSING_TIME);
+        assertThat(result.getTopLabels()).isEmpty();
+
+        ProcessingError error = ImageMessageCodec.decodeError(utf8("42:timeout: model not loaded"));
+        assertThat(error.getImageId()).isEqualTo(42);
+        assertThat(error.getMessage()).isEqualTo("timeout: model not loaded");
+
+        ProcessingRequest request = ImageMessageCodec.decodeProcessingRequest(
+                ImageMessageCodec.encodeLegacyProcessingRequest(42, "images/a.jpg"));
+        assertThat(request.getImageId()).isEqualTo(42);
+        assertThat(request.getS3Key()).isEqualTo("images/a.jpg");
+    }
+
+    @Test
+    void rejectsMalformedMessages() {
+        assertThatThrownBy(() -> ImageMessageCodec.decodeResult(utf8("42:tabby")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ImageMessageCodec.decodeResult(utf8("x1:tabby:0.5")))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        byte[] request = ImageMessageCodec.encodeProcessingRequest(42, "images/a.jpg", 0);
+        // Cuts into the s3 key itself, not just the optional attempt field
+        assertThatThrownBy(() -> ImageMessageCodec.decodeProcessingRequest(Arrays.copyOf(request, request.length - 6)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Truncated message");
+        assertThatThrownBy(() -> ImageMessageCodec.decodeResult(request))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
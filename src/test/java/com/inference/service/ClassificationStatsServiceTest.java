@@ -0,0 +1,225 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClassificationStatsServiceTest {
+
+    // Stands in for classification_stats: rows by (window_start, status, label), merged as the upsert does
+    private final Map<List<Object>, Object[]> table = new HashMap<>();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private boolean failWrites;
+
+    private ClassificationStatsService replicaA;
+    private ClassificationStatsService replicaB;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            if (failWrites) {
+                throw new QueryTimeoutException("timeout");
+            }
+            List<Object> rows = invocation.getArgument(1);
+            ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+            for (Object row : rows) {
+                Object[] params = new Object[7];
+                setter.setValues(statement(params), row);
+                upsert(params);
+            }
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyList(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            LocalDateTime from = invocation.getArgument(2);
+            for (Map.Entry<List<Object>, Object[]> row : table.entrySet()) {
+                if (!((LocalDateTime) row.getKey().get(0)).isBefore(from)) {
+                    handler.processRow(resultSet(row.getKey(), row.getValue()));
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(LocalDateTime.class));
+
+        replicaA = replica();
+        replicaB = replica();
+    }
+
+    @Test
+    void mergesReplicasIntoOneWindow() {
+        replicaA.record(List.of(completed("tabby", 0.95), completed("tabby", 0.85), failed()));
+        replicaB.record(List.of(completed("tabby", 0.91), completed("beagle", 0.42)));
+
+        replicaA.snapshot();
+        replicaB.snapshot();
+        // A second pass re-reads the open window, now with B's deltas added
+        replicaA.snapshot();
+
+        ClassificationStats stats = replicaA.getStats(3);
+
+        assertThat(stats.getWindows()).hasSize(3);
+        assertThat(stats.getWindows().get(0).getStart()).isAfter(stats.getWindows().get(1).getStart());
+        assertThat(stats.getWindows().get(1).getOutcomes()).isEmpty();
+        assertThat(stats.getOutcomes()).containsOnly(Map.entry("COMPLETED", 4L), Map.entry("FAILED", 1L));
+
+        assertThat(stats.getLabels()).extracting(ClassificationStats.LabelStats::getLabel).containsExactly("tabby", "beagle");
+        ClassificationStats.LabelStats tabby = stats.getLabels().get(0);
+        assertThat(tabby.getCount()).isEqualTo(3);
+        assertThat(tabby.getMeanConfidence()).isCloseTo((0.95 + 0.85 + 0.91) / 3, offset(1e-9));
+        assertThat(stats.getConfidenceHistogram()).containsExactly(0, 0, 0, 0, 1, 0, 0, 0, 1, 2);
+    }
+
+    @Test
+    void countsEachResultOnceAcrossSnapshots() {
+        replicaA.record(List.of(completed("tabby", 0.95)));
+        replicaA.snapshot();
+        replicaA.snapshot();
+
+        assertThat(replicaA.getStats(1).getOutcomes()).containsOnly(Map.entry("COMPLETED", 1L));
+    }
+
+    @Test
+    void keepsDeltasOfFailedWriteForNextSnapshot() {
+        failWrites = true;
+        replicaA.record(List.of(completed("tabby", 0.95)));
+        replicaA.snapshot();
+        assertThat(table).isEmpty();
+
+        failWrites = false;
+        replicaA.record(List.of(completed("tabby", 0.75)));
+        replicaA.snapshot();
+
+        assertThat(replicaA.getStats(1).getLabels().get(0).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void foldsLabelsPastMaxIntoOther() {
+        ReflectionTestUtils.setField(replicaA, "maxLabels", 2);
+
+        replicaA.record(List.of(completed("tabby", 0.9), completed("beagle", 0.8), completed("espresso", 0.7)));
+        replicaA.snapshot();
+
+        assertThat(replicaA.getStats(1).getLabels()).extracting(ClassificationStats.LabelStats::getLabel)
+                .containsExactlyInAnyOrder("tabby", "beagle", "(other)");
+    }
+
+    @Test
+    void capsDistinctLabelsRatherThanCells() {
+        ReflectionTestUtils.setField(replicaA, "maxLabels", 2);
+
+        // Four cells, but failures carry no label and tabby twice is still one label
+        replicaA.record(List.of(completed("tabby", 0.9), completed("beagle", 0.8), failed(), completed("tabby", 0.7)));
+        replicaA.snapshot();
+        // The cap holds for the whole window, not just until the next snapshot
+        replicaA.record(List.of(completed("espresso", 0.6)));
+        replicaA.snapshot();
+
+        ClassificationStats stats = replicaA.getStats(1);
+        assertThat(stats.getOutcomes()).containsOnly(Map.entry("COMPLETED", 4L), Map.entry("FAILED", 1L));
+        assertThat(stats.getLabels()).extracting(ClassificationStats.LabelStats::getLabel)
+                .containsExactly("tabby", "(other)", "beagle");
+    }
+
+    private ClassificationStatsService replica() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        ClassificationStatsService service = new ClassificationStatsService(jdbcTemplate, transactionTemplate,
+                mock(ImageCountService.class));
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "window", Duration.ofHours(1));
+        ReflectionTestUtils.setField(service, "retention", Duration.ofHours(48));
+        ReflectionTestUtils.setField(service, "maxLabels", 1000);
+        ReflectionTestUtils.setField(service, "topLabels", 20);
+        return service;
+    }
+
+    private void upsert(Object[] params) {
+        List<Object> key = List.of(params[1], params[2], params[3]);
+        Long[] buckets = (Long[]) params[6];
+        table.merge(key, new Object[]{params[4], params[5], buckets}, (stored, delta) -> {
+            Long[] merged = new Long[buckets.length];
+            for (int i = 0; i < merged.length; i++) {
+                merged[i] = ((Long[]) stored[2])[i] + ((Long[]) delta[2])[i];
+            }
+            return new Object[]{(Long) stored[0] + (Long) delta[0], (Double) stored[1] + (Double) delta[1], merged};
+        });
+    }
+
+    // Records each setXxx(index, value) into params
+    private static PreparedStatement statement(Object[] params) {
+        Connection connection = mock(Connection.class, invocation -> {
+            Array array = mock(Array.class);
+            when(array.getArray()).thenReturn(invocation.getArgument(1));
+            return array;
+        });
+        return mock(PreparedStatement.class, invocation -> {
+            if (invocation.getMethod().getName().equals("getConnection")) {
+                return connection;
+            }
+            if (invocation.getMethod().getName().startsWith("set")) {
+                Object value = invocation.getArgument(1);
+                params[invocation.<Integer>getArgument(0)] = value instanceof Array array ? array.getArray() : value;
+            }
+            return null;
+        });
+    }
+
+    private static ResultSet resultSet(List<Object> key, Object[] values) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        Array buckets = mock(Array.class);
+        when(buckets.getArray()).thenReturn(values[2]);
+        when(rs.getObject(1, LocalDateTime.class)).thenReturn((LocalDateTime) key.get(0));
+        when(rs.getString(2)).thenReturn((String) key.get(1));
+        when(rs.getString(3)).thenReturn((String) key.get(2));
+        when(rs.getLong(4)).thenReturn((Long) values[0]);
+        when(rs.getDouble(5)).thenReturn((Double) values[1]);
+        when(rs.getArray(6)).thenReturn(buckets);
+        return rs;
+    }
+
+    private static ImageEntity completed(String label, double confidence) {
+        return ImageEntity.builder()
+                .status(ImageStatus.COMPLETED)
+                .classificationResult(label)
+                .confidenceScore(confidence)
+                .build();
+    }
+
+    private static ImageEntity failed() {
+        return ImageEntity.builder()
+                .status(ImageStatus.FAILED)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import com.inference.repository.ImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ContentDedupServiceTest {
+
+    private static final String HASH_A = "aa".repeat(32);
+    private static final String HASH_B = "bb".repeat(32);
+    private static final String HASH_C = "cc".repeat(32);
+
+    private final ImageRepository imageRepository = mock(ImageRepository.class);
+    private final MetricsService metricsService = mock(MetricsService.class);
+    private final ContentDedupService dedup = new ContentDedupService(imageRepository, metricsService);
+
+    @BeforeEach
+    void enable() {
+        ReflectionTestUtils.setField(dedup, "enabled", true);
+    }
+
+    @Test
+    void completesUploadsOfKnownContent() {
+        ImageEntity done = image(1L, HASH_A, ImageStatus.COMPLETED);
+        done.setClassificationResult("tabby");
+        done.setConfidenceScore(0.97);
+        done.setProcessingTimeMs(840L);
+        when(imageRepository.findDedupCandidates(anyCollection())).thenReturn(List.of(done));
+        ImageEntity upload = image(null, HASH_A, ImageStatus.PENDING);
+
+        assertThat(dedup.resolve(List.of(upload))).isEmpty();
+
+        assertThat(upload.getStatus()).isEqualTo(ImageStatus.COMPLETED);
+        assertThat(upload.getClassificationResult()).isEqualTo("tabby");
+        assertThat(upload.getConfidenceScore()).isEqualTo(0.97);
+        assertThat(upload.getProcessingTimeMs()).isZero();
+        verify(metricsService).recordContentDedup("completed");
+    }
+
+    @Test
+    void coalescesOntoCopyInFlight() {
+        when(imageRepository.findDedupCandidates(anyCollection()))
+                .thenReturn(List.of(image(1L, HASH_A, ImageStatus.PROCESSING)));
+        ImageEntity upload = image(null, HASH_A, ImageStatus.PENDING);
+
+        assertThat(dedup.resolve(List.of(upload))).isEmpty();
+
+        // Left PENDING with nothing queued; it completes with image 1
+        assertThat(upload.getStatus()).isEqualTo(ImageStatus.PENDING);
+        verify(metricsService).recordContentDedup("coalesced");
+    }
+
+    @Test
+    void processesFirstCopyWithinBatchOnly() {
+        when(imageRepository.findDedupCandidates(anyCollection())).thenReturn(List.of());
+        ImageEntity first = image(null, HASH_A, ImageStatus.PENDING);
+        ImageEntity second = image(null, HASH_A, ImageStatus.PENDING);
+        ImageEntity other = image(null, HASH_B, ImageStatus.PENDING);
+        ImageEntity unhashed = image(null, null, ImageStatus.PENDING);
+
+        assertThat(dedup.resolve(List.of(first, second, other, unhashed))).containsExactly(first, other, unhashed);
+        assertThat(second.getStatus()).isEqualTo(ImageStatus.PENDING);
+    }
+
+    @Test
+    void locksEachHashOnceBeforeLookingUp() {
+        when(imageRepository.findDedupCandidates(anyCollection())).thenReturn(List.of());
+
+        dedup.resolve(List.of(image(null, HASH_A, ImageStatus.PENDING), image(null, HASH_A, ImageStatus.PENDING),
+                image(null, HASH_C, ImageStatus.PENDING)));
+
+        // Keys are the first 8 bytes, read unsigned: 0xcccc... does not fit a positive long
+        ArgumentCaptor<Long[]> keys = ArgumentCaptor.forClass(Long[].class);
+        verify(imageRepository).lockContentHashes(keys.capture());
+        assertThat(keys.getValue()).containsExactlyInAnyOrder(0xaaaaaaaaaaaaaaaaL, 0xccccccccccccccccL);
+    }
+
+    @Test
+    void findsFollowersOfFinishedImages() {
+        List<ImageEntity> followers = List.of(image(2L, HASH_A, ImageStatus.PENDING));
+        when(imageRepository.findByContentHashInAndStatusIn(Set.of(HASH_A),
+                List.of(ImageStatus.PENDING, ImageStatus.PROCESSING))).thenReturn(followers);
+
+        assertThat(dedup.findFollowers(List.of(image(1L, HASH_A, ImageStatus.COMPLETED)))).isEqualTo(followers);
+        assertThat(dedup.findFollowers(List.of(image(3L, null, ImageStatus.COMPLETED)))).isEmpty();
+    }
+
+    @Test
+    void passesEverythingThroughWhenDisabled() {
+        ReflectionTestUtils.setField(dedup, "enabled", false);
+        List<ImageEntity> images = List.of(image(null, HASH_A, ImageStatus.PENDING));
+
+        assertThat(dedup.resolve(images)).isSameAs(images);
+        assertThat(dedup.findFollowers(images)).isEmpty();
+        verifyNoInteractions(imageRepository);
+    }
+
+    private static ImageEntity image(Long id, String hash, ImageStatus status) {
+        return ImageEntity.builder()
+                .id(id)
+                .contentHash(hash)
+                .status(status)
+                .build();
+    }
+}
@@ -0,0 +1,196 @@
+package com.inference.service;
+
+import com.inference.model.ImageStatus;
+import com.inference.repository.ImageRepository;
+import com.inference.repository.StatusCount;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImageCountServiceTest {
+
+    private final RedisTemplate<String, String> redisTemplate = mockRedisTemplate();
+    private final ImageRepository imageRepository = mock(ImageRepository.class);
+    private final HashOperations<String, Object, Object> hash = mockHashOperations();
+    private final ImageCountService service = new ImageCountService(redisTemplate, imageRepository);
+
+    // Source and arguments of each script call
+    private final List<String> scripts = new ArrayList<>();
+    private final List<List<Object>> scriptArgs = new ArrayList<>();
+
+    @BeforeEach
+    void recordScripts() {
+        ReflectionTestUtils.setField(service, "reconcileInterval", Duration.ofMinutes(15));
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hash);
+        when(redisTemplate.execute(any(), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            RedisScript<?> script = invocation.getArgument(0);
+            scripts.add(script.getScriptAsString());
+            scriptArgs.add(List.of((Object[]) invocation.getRawArguments()[2]));
+            return 0L;
+        });
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void movesNetOutAcrossImages() {
+        Map<ImageStatus, Long> deltas = ImageCountService.newDeltas();
+        ImageCountService.move(deltas, ImageStatus.PENDING, ImageStatus.PROCESSING);
+        ImageCountService.move(deltas, ImageStatus.PROCESSING, ImageStatus.COMPLETED);
+        ImageCountService.move(deltas, ImageStatus.PENDING, ImageStatus.COMPLETED);
+        ImageCountService.move(deltas, ImageStatus.FAILED, ImageStatus.FAILED);
+
+        assertThat(deltas).containsOnly(
+                Map.entry(ImageStatus.PENDING, -2L),
+                Map.entry(ImageStatus.PROCESSING, 0L),
+                Map.entry(ImageStatus.COMPLETED, 2L));
+    }
+
+    @Test
+    void appliesOnlyNonZeroDeltas() {
+        Map<ImageStatus, Long> deltas = ImageCountService.newDeltas();
+        ImageCountService.move(deltas, ImageStatus.PENDING, ImageStatus.PROCESSING);
+        ImageCountService.move(deltas, ImageStatus.PROCESSING, ImageStatus.FAILED);
+
+        service.apply(deltas);
+
+        assertThat(increments()).containsExactly(Map.of("PENDING", "-1", "FAILED", "1"));
+    }
+
+    @Test
+    void skipsRedisWhenNothingMoved() {
+        Map<ImageStatus, Long> deltas = ImageCountService.newDeltas();
+        ImageCountService.move(deltas, ImageStatus.COMPLETED, ImageStatus.COMPLETED);
+
+        service.apply(deltas);
+
+        assertThat(scripts).isEmpty();
+    }
+
+    @Test
+    void defersDeltasUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        Map<ImageStatus, Long> deltas = ImageCountService.newDeltas();
+        ImageCountService.move(deltas, ImageStatus.PENDING, ImageStatus.COMPLETED);
+
+        service.apply(deltas);
+        assertThat(scripts).isEmpty();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(increments()).containsExactly(Map.of("PENDING", "-1", "COMPLETED", "1"));
+    }
+
+    @Test
+    void dropsDeltasOfRolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        Map<ImageStatus, Long> deltas = ImageCountService.newDeltas();
+        ImageCountService.move(deltas, ImageStatus.PENDING, ImageStatus.COMPLETED);
+
+        service.apply(deltas);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(scripts).isEmpty();
+    }
+
+    @Test
+    void reconcilesFromSnapshotThroughJournal() {
+        ValueOperations<String, String> values = mockValueOperations();
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(eq("images:counts:reconcile"), anyString(), any(Duration.class))).thenReturn(true);
+        List<StatusCount> snapshot = List.of(statusCount(ImageStatus.COMPLETED, 12), statusCount(ImageStatus.PENDING, 3));
+        when(imageRepository.countGroupedByStatus()).thenReturn(snapshot);
+
+        service.reconcile();
+
+        // The journal is opened before the snapshot is read, and the script adds it onto the snapshot
+        var order = inOrder(hash, imageRepository);
+        order.verify(hash).put(eq("images:counts:journal"), eq("_token"), anyString());
+        order.verify(imageRepository).countGroupedByStatus();
+
+        assertThat(scripts).containsExactly(script("image_counts_reconcile.lua"));
+        List<Object> args = scriptArgs.get(0);
+        assertThat(pairs(args.subList(1, args.size()))).containsOnly(
+                Map.entry("PENDING", "3"), Map.entry("PROCESSING", "0"), Map.entry("COMPLETED", "12"),
+                Map.entry("FAILED", "0"), Map.entry("CACHED", "0"));
+    }
+
+    @Test
+    void clampsDriftedCountsAtZero() {
+        when(hash.entries("images:counts")).thenReturn(Map.of("PENDING", "-3", "COMPLETED", "7"));
+        when(hash.values("images:counts")).thenReturn(List.of("-3", "7"));
+
+        assertThat(service.getCounts()).containsOnly(Map.entry("PENDING", 0L), Map.entry("COMPLETED", 7L));
+        assertThat(service.getTotalCount()).isEqualTo(7L);
+    }
+
+    private List<Map<String, String>> increments() {
+        List<Map<String, String>> increments = new ArrayList<>();
+        for (int i = 0; i < scripts.size(); i++) {
+            assertThat(scripts.get(i)).isEqualTo(script("image_counts_increment.lua"));
+            increments.add(pairs(scriptArgs.get(i)));
+        }
+        return increments;
+    }
+
+    private static Map<String, String> pairs(List<Object> args) {
+        Map<String, String> pairs = new LinkedHashMap<>();
+        for (int i = 0; i < args.size(); i += 2) {
+            pairs.put(args.get(i).toString(), args.get(i + 1).toString());
+        }
+        return pairs;
+    }
+
+    private static String script(String name) {
+        return RedisScript.of(new ClassPathResource("scripts/" + name)).getScriptAsString();
+    }
+
+    private static StatusCount statusCount(ImageStatus status, long count) {
+        StatusCount statusCount = mock(StatusCount.class);
+        when(statusCount.getStatus()).thenReturn(status);
+        when(statusCount.getCount()).thenReturn(count);
+        return statusCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static RedisTemplate<String, String> mockRedisTemplate() {
+        return mock(RedisTemplate.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static HashOperations<String, Object, Object> mockHashOperations() {
+        return mock(HashOperations.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ValueOperations<String, String> mockValueOperations() {
+        return mock(ValueOperations.class);
+    }
+}
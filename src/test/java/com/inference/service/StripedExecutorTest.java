@@ -0,0 +1,86 @@
+package com.inference.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StripedExecutorTest {
+
+    private final StripedExecutor executor = new StripedExecutor();
+
+    @BeforeEach
+    void start() {
+        ReflectionTestUtils.setField(executor, "enabled", true);
+        ReflectionTestUtils.setField(executor, "stripes", 4);
+        executor.init();
+    }
+
+    @AfterEach
+    void stop() {
+        executor.shutdown();
+    }
+
+    @Test
+    void keepsPerKeyOrderOnOneThread() {
+        // {key, sequence} pairs, keys interleaved the way a poll across partitions would deliver them
+        List<long[]> items = new ArrayList<>();
+        for (int sequence = 0; sequence < 200; sequence++) {
+            items.add(new long[]{ThreadLocalRandom.current().nextLong(20), sequence});
+        }
+        Map<Long, List<Long>> seen = new ConcurrentHashMap<>();
+        Map<Long, Set<String>> threads = new ConcurrentHashMap<>();
+
+        executor.execute(items, item -> item[0], group -> group.forEach(item -> {
+            seen.computeIfAbsent(item[0], key -> new ArrayList<>()).add(item[1]);
+            threads.computeIfAbsent(item[0], key -> ConcurrentHashMap.newKeySet()).add(Thread.currentThread().getName());
+        }));
+
+        assertThat(seen.values().stream().mapToInt(List::size).sum()).isEqualTo(items.size());
+        seen.values().forEach(sequences -> assertThat(sequences).isSorted());
+        threads.values().forEach(names -> assertThat(names).hasSize(1));
+    }
+
+    @Test
+    void waitsForEveryStripe() {
+        AtomicInteger handled = new AtomicInteger();
+
+        executor.execute(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L), Long::longValue, group -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.addAndGet(group.size());
+        });
+
+        assertThat(handled).hasValue(8);
+    }
+
+    @Test
+    void failsThePollWhenAnyStripeFails() {
+        AtomicInteger handled = new AtomicInteger();
+
+        assertThatThrownBy(() -> executor.execute(List.of(1L, 2L, 3L, 4L), Long::longValue, group -> {
+            if (group.contains(3L)) {
+                throw new IllegalStateException("stripe failed");
+            }
+            handled.addAndGet(group.size());
+        }))
+                .isInstanceOf(CompletionException.class)
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+        // The other stripes still ran; redelivery has to be idempotent for them
+        assertThat(handled).hasValue(3);
+    }
+}
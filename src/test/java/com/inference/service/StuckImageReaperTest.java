@@ -0,0 +1,163 @@
+package com.inference.service;
+
+import com.inference.model.ImageEntity;
+import com.inference.model.ImageStatus;
+import com.inference.model.OutboxEvent;
+import com.inference.repository.ImageRepository;
+import com.inference.repository.OutboxRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class StuckImageReaperTest {
+
+    private final ImageRepository imageRepository = mock(ImageRepository.class);
+    private final OutboxRepository outboxRepository = mock(OutboxRepository.class);
+    private final ImageService imageService = mock(ImageService.class);
+    private final ImageCountService imageCountService = mock(ImageCountService.class);
+    private final CacheService cacheService = mock(CacheService.class);
+    private final ImageNotificationService imageNotificationService = mock(ImageNotificationService.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final StuckImageReaper reaper = new StuckImageReaper(imageRepository, outboxRepository, imageService,
+            imageCountService, mock(ClassificationStatsService.class), cacheService, imageNotificationService,
+            transactionTemplate, mock(MetricsService.class));
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(reaper, "enabled", true);
+        ReflectionTestUtils.setField(reaper, "staleAfter", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(reaper, "batchSize", 2);
+        ReflectionTestUtils.setField(reaper, "maxAttempts", 3);
+
+        // Runs each batch as a transaction that commits
+        when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                Object result = invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+                TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+                return result;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        });
+        when(imageService.processingEvent(any())).thenAnswer(invocation -> OutboxEvent.builder()
+                .messageKey(invocation.<ImageEntity>getArgument(0).getId().toString())
+                .build());
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void requeuesImagesWithAttemptsLeft() {
+        ImageEntity image = image(1L, ImageStatus.PROCESSING, 1);
+        when(imageRepository.lockStaleBatch(any(), anyInt())).thenReturn(List.of(image));
+
+        reaper.reap();
+
+        assertThat(image.getStatus()).isEqualTo(ImageStatus.PENDING);
+        assertThat(image.getAttempts()).isEqualTo(2);
+        ArgumentCaptor<List<OutboxEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(outboxRepository).saveAll(events.capture());
+        assertThat(events.getValue()).extracting(OutboxEvent::getMessageKey).containsExactly("1");
+        verify(imageService, never()).failWithFollowers(anyList(), any(), any(), any());
+        verifyNoInteractions(cacheService, imageNotificationService);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failsExhaustedImagesTogetherWithTheirCopies() {
+        ImageEntity leader = image(1L, ImageStatus.PROCESSING, 3);
+        ImageEntity follower = image(2L, ImageStatus.PENDING, 0);
+        when(imageRepository.lockStaleBatch(any(), anyInt())).thenReturn(List.of(leader));
+        when(imageService.failWithFollowers(anyList(), any(), any(), any())).thenAnswer(invocation -> {
+            Function<ImageEntity, String> message = invocation.getArgument(1);
+            leader.setStatus(ImageStatus.FAILED);
+            leader.setErrorMessage(message.apply(leader));
+            return List.of(leader, follower);
+        });
+
+        reaper.reap();
+
+        ArgumentCaptor<List<ImageEntity>> exhausted = ArgumentCaptor.forClass(List.class);
+        verify(imageService).failWithFollowers(exhausted.capture(), any(), any(), any());
+        assertThat(exhausted.getValue()).containsExactly(leader);
+        assertThat(leader.getErrorMessage()).isEqualTo("Timed out after 4 attempts");
+        assertThat(leader.getAttempts()).isEqualTo(3);
+
+        // Nothing is queued again, and the copy is published alongside its leader once committed
+        verify(outboxRepository).saveAll(List.of());
+        verify(cacheService).cacheResults(List.of(leader, follower));
+        verify(imageNotificationService).publishStateChanges(List.of(1L, 2L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void countsMovesOfRequeuedImages() {
+        when(imageRepository.lockStaleBatch(any(), anyInt()))
+                .thenReturn(List.of(image(1L, ImageStatus.PROCESSING, 0), image(2L, ImageStatus.PENDING, 0)))
+                .thenReturn(List.of());
+
+        reaper.reap();
+
+        ArgumentCaptor<Map<ImageStatus, Long>> counts = ArgumentCaptor.forClass(Map.class);
+        verify(imageCountService, times(1)).apply(counts.capture());
+        assertThat(counts.getValue()).containsEntry(ImageStatus.PROCESSING, -1L).containsEntry(ImageStatus.PENDING, 1L);
+    }
+
+    @Test
+    void keepsReapingWhileBatchesComeBackFull() {
+        when(imageRepository.lockStaleBatch(any(), anyInt()))
+                .thenReturn(List.of(image(1L, ImageStatus.PENDING, 0), image(2L, ImageStatus.PENDING, 0)))
+                .thenReturn(List.of(image(3L, ImageStatus.PENDING, 0)));
+
+        reaper.reap();
+
+        verify(imageRepository, times(2)).lockStaleBatch(any(), anyInt());
+    }
+
+    @Test
+    void doesNothingWhenDisabled() {
+        ReflectionTestUtils.setField(reaper, "enabled", false);
+
+        reaper.reap();
+
+        verifyNoInteractions(imageRepository, transactionTemplate);
+    }
+
+    private static ImageEntity image(long id, ImageStatus status, int attempts) {
+        return ImageEntity.builder()
+                .id(id)
+                .status(status)
+                .attempts(attempts)
+                .contentHash("hash-" + id)
+                .build();
+    }
+}
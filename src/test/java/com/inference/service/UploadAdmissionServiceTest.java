@@ -0,0 +1,167 @@
+package com.inference.service;
+
+import com.inference.exception.RateLimitedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class UploadAdmissionServiceTest {
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+    private final OutboxRelay outboxRelay = mock(OutboxRelay.class);
+    private final MetricsService metricsService = mock(MetricsService.class);
+    private final UploadAdmissionService admission = new UploadAdmissionService(redisTemplate, outboxRelay, metricsService);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "leaseTtl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(admission, "maxClients", 100L);
+        ReflectionTestUtils.setField(admission, "maxInFlight", 2);
+        ReflectionTestUtils.setField(admission, "shedStartLag", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(admission, "maxLag", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(admission, "retryAfterSeconds", 1L);
+        admission.init();
+    }
+
+    @Test
+    void spendsLeasedTokensWithoutRedis() {
+        bucketReplies(List.of(3L, 0L), List.of(3L, 0L));
+
+        for (int i = 0; i < 4; i++) {
+            admission.admit("client-a").close();
+        }
+
+        // Three uploads from the first lease, the fourth needed a second one
+        verify(redisTemplate, times(2)).execute(any(), anyList(), any(), any(), any(), any());
+    }
+
+    @Test
+    void remembersDenialUntilBucketRefills() {
+        bucketReplies(List.of(0L, 1500L));
+
+        assertThatThrownBy(() -> admission.admit("client-a"))
+                .isInstanceOfSatisfying(RateLimitedException.class, e -> {
+                    assertThat(e.getReason()).isEqualTo("rate");
+                    assertThat(e.getRetryAfterSeconds()).isEqualTo(2);
+                });
+        assertThatThrownBy(() -> admission.admit("client-a")).isInstanceOf(RateLimitedException.class);
+
+        verify(redisTemplate, times(1)).execute(any(), anyList(), any(), any(), any(), any());
+        verify(metricsService, times(2)).recordUploadThrottled("client-a", "rate");
+    }
+
+    @Test
+    void admitsWhileRedisIsDown() {
+        when(redisTemplate.execute(any(), anyList(), any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("connection refused"));
+
+        admission.admit("client-a").close();
+        admission.admit("client-a").close();
+    }
+
+    @Test
+    void capsUploadsInFlight() {
+        bucketReplies(List.of(10L, 0L));
+
+        UploadAdmissionService.Permit first = admission.admit("client-a");
+        admission.admit("client-b");
+        assertThatThrownBy(() -> admission.admit("client-c"))
+                .isInstanceOfSatisfying(RateLimitedException.class, e -> assertThat(e.getReason()).isEqualTo("concurrency"));
+
+        first.close();
+        admission.admit("client-c");
+    }
+
+    @Test
+    void refundsTokenWhenInFlightCapRejects() {
+        ReflectionTestUtils.setField(admission, "maxInFlight", 1);
+        admission.init();
+        bucketReplies(List.of(2L, 0L));
+
+        UploadAdmissionService.Permit first = admission.admit("client-a");
+        assertThatThrownBy(() -> admission.admit("client-a")).isInstanceOf(RateLimitedException.class);
+        first.close();
+        admission.admit("client-a").close();
+
+        // The rejected upload's token served the third one
+        verify(redisTemplate, times(1)).execute(any(), anyList(), any(), any(), any(), any());
+    }
+
+    @Test
+    void returnsLapsedLeaseTokensToBucket() throws InterruptedException {
+        ReflectionTestUtils.setField(admission, "leaseTtl", Duration.ofMillis(1));
+        bucketReplies(List.of(3L, 0L), List.of(3L, 0L));
+
+        admission.admit("client-a").close();
+        Thread.sleep(10);
+        admission.admit("client-a").close();
+
+        verify(redisTemplate).execute(any(), anyList(), any(), any(), any(), eq("0"));
+        verify(redisTemplate).execute(any(), anyList(), any(), any(), any(), eq("2"));
+    }
+
+    @Test
+    void shedsEverythingAtMaxLag() {
+        when(outboxRelay.getLagMillis()).thenReturn(30_000L);
+
+        assertThatThrownBy(() -> admission.admit("client-a"))
+                .isInstanceOfSatisfying(RateLimitedException.class, e -> assertThat(e.getReason()).isEqualTo("shed"));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void metersBulkEntriesAfterTheFirst() throws Exception {
+        bucketReplies(List.of(1L, 0L), List.of(1L, 0L), List.of(0L, 1000L));
+        admission.admit("client-a").close();
+        UploadEntrySource entries = admission.meter("client-a", entries(3));
+
+        // The first entry rode on admit's token, the second leases one, the third is denied before it is read
+        assertThat(entries.next()).isNotNull();
+        assertThat(entries.next()).isNotNull();
+        assertThatThrownBy(entries::next).isInstanceOf(RateLimitedException.class);
+        verify(redisTemplate, times(3)).execute(any(), anyList(), any(), any(), any(), any());
+    }
+
+    @Test
+    void leavesSourceUnmeteredWhenDisabled() {
+        ReflectionTestUtils.setField(admission, "enabled", false);
+        UploadEntrySource source = entries(1);
+
+        admission.admit("client-a").close();
+        assertThat(admission.meter("client-a", source)).isSameAs(source);
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @SafeVarargs
+    private void bucketReplies(List<Long> first, List<Long>... rest) {
+        when(redisTemplate.execute(any(), anyList(), any(), any(), any(), any()))
+                .thenReturn(first, (Object[]) rest);
+    }
+
+    private static UploadEntrySource entries(int count) {
+        Queue<UploadEntry> queue = new ArrayDeque<>();
+        for (int i = 0; i < count; i++) {
+            queue.add(new UploadEntry("image-" + i + ".jpg", new ByteArrayInputStream(new byte[]{1})));
+        }
+        return queue::poll;
+    }
+}